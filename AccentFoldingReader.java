@@ -0,0 +1,99 @@
+package uk.ac.warwick.cs126.util;
+
+import java.io.IOException;
+import java.io.Reader;
+
+public class AccentFoldingReader extends Reader {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Reader input;
+
+    //the chars read from the input that are not converted yet
+    private final char[] buffer;
+    private int position;
+    private int limit;
+
+    //the rest of a converted accent that did not fit in the last read
+    private String pending;
+    private int pendingIndex;
+
+    //reused by read() so that reading one char does not allocate
+    private final char[] single = new char[1];
+
+    /**
+     * Constructor method
+     * Converts the accents with the StringFormatter table while the text is read
+     * @param input the reader to convert
+     */
+    public AccentFoldingReader(Reader input) {
+        super(input);
+        this.input = input;
+        buffer = new char[BUFFER_SIZE];
+    }
+
+    public int read() throws IOException {
+        if (read(single, 0, 1) < 0) {
+            return -1;
+        }
+        return single[0];
+    }
+
+    public int read(char[] chars, int offset, int length) throws IOException {
+        if (offset < 0 || length < 0 || length > chars.length - offset) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (length == 0) {
+            return 0;
+        }
+
+        int count = 0;
+        while (count < length) {
+
+            //finishes the converted accent from the last read first
+            if (pending != null) {
+                int copied = Math.min(length - count, pending.length() - pendingIndex);
+                pending.getChars(pendingIndex, pendingIndex + copied, chars, offset + count);
+                count += copied;
+                pendingIndex += copied;
+                if (pendingIndex == pending.length()) {
+                    pending = null;
+                }
+                continue;
+            }
+
+            //only waits for the input when nothing was read yet
+            if (position == limit) {
+                if (count > 0 && !input.ready()) {
+                    break;
+                }
+                int read = input.read(buffer, 0, buffer.length);
+                if (read < 0) {
+                    break;
+                }
+                position = 0;
+                limit = read;
+                continue;
+            }
+
+            char c = buffer[position++];
+            String converted = StringFormatter.convertedAccent(c);
+            if (converted == null) {
+                chars[offset + count++] = c;
+            }
+            else {
+                pending = converted;
+                pendingIndex = 0;
+            }
+        }
+        return count == 0 ? -1 : count;
+    }
+
+    public boolean ready() throws IOException {
+        return pending != null || position < limit || input.ready();
+    }
+
+    public void close() throws IOException {
+        input.close();
+    }
+}
@@ -0,0 +1,125 @@
+package uk.ac.warwick.cs126.structures;
+
+public class Blacklist {
+
+    //about 1% false positives with 10 bits and 7 hashes for every id
+    private static final int BITS_PER_ID = 10;
+    private static final int HASHES = 7;
+    private static final int MIN_FILTER_CAPACITY = 1024;
+
+    private final LongHashSet ids;
+
+    //the bloom filter in front of the set, null when it is not used
+    private long[] filter;
+    private int filterCapacity;
+
+    /**
+     * Constructor method
+     * Set of blacklisted ids with a bloom filter in front of it,
+     * most ids that are checked are not blacklisted and the filter rejects them quickly
+     */
+    public Blacklist() {
+        this(true);
+    }
+
+    /**
+     * Constructor method
+     * @param useBloomFilter true to check the bloom filter before the set
+     */
+    public Blacklist(boolean useBloomFilter) {
+        ids = new LongHashSet();
+        if (useBloomFilter) {
+            buildFilter(MIN_FILTER_CAPACITY);
+        }
+    }
+
+    public int size() {
+        return ids.size();
+    }
+
+    public boolean isEmpty() {
+        return ids.isEmpty();
+    }
+
+    /**
+     * Blacklists an id
+     * @param id the id
+     * @return true when it was not blacklisted before
+     */
+    public boolean add(long id) {
+        if (!ids.add(id)) {
+            return false;
+        }
+        if (filter != null) {
+
+            //the filter is made twice as big when it is full, so the false positives stay rare
+            if (ids.size() > filterCapacity) {
+                buildFilter(filterCapacity * 2);
+            }
+            else {
+                addToFilter(id);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks if an id is blacklisted
+     * @param id the id
+     * @return true when it is blacklisted
+     */
+    public boolean contains(long id) {
+        if (filter != null && !mightContain(id)) {
+            return false;
+        }
+        return ids.contains(id);
+    }
+
+    //makes a new filter for the capacity and adds every id to it
+    private void buildFilter(int capacity) {
+        filterCapacity = capacity;
+        int words = 1;
+        while (words * 64L < (long) capacity * BITS_PER_ID) {
+            words <<= 1;
+        }
+        filter = new long[words];
+        long[] all = ids.toArray();
+        for (int i = 0; i < all.length; i++) {
+            addToFilter(all[i]);
+        }
+    }
+
+    //two hashes of the id make the positions of all the bits
+    private static long hash1(long id) {
+        long h = id * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 29);
+    }
+
+    private static long hash2(long id) {
+        long h = (id ^ (id >>> 31)) * 0xBF58476D1CE4E5B9L;
+        return (h ^ (h >>> 32)) | 1;
+    }
+
+    private void addToFilter(long id) {
+        long mask = filter.length * 64L - 1;
+        long h1 = hash1(id);
+        long h2 = hash2(id);
+        for (int i = 0; i < HASHES; i++) {
+            long bit = (h1 + i * h2) & mask;
+            filter[(int) (bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+    private boolean mightContain(long id) {
+        long mask = filter.length * 64L - 1;
+        long h1 = hash1(id);
+        long h2 = hash2(id);
+        for (int i = 0; i < HASHES; i++) {
+            long bit = (h1 + i * h2) & mask;
+            if ((filter[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
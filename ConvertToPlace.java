@@ -2,42 +2,123 @@ package uk.ac.warwick.cs126.util;
 
 import uk.ac.warwick.cs126.interfaces.IConvertToPlace;
 import uk.ac.warwick.cs126.models.Place;
+import uk.ac.warwick.cs126.structures.LongHashMap;
+import uk.ac.warwick.cs126.structures.SpatialGrid;
 
 import java.io.*;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Paths;
+import java.util.Comparator;
 
 import org.apache.commons.io.IOUtils;
 
 public class ConvertToPlace implements IConvertToPlace {
 
-    private Place[] places;
+    //the places in file order, each place is only made once
+    private final Place[] places;
 
-    //gets the places from placeData.tsv
+    //the places from placeData.tsv, shared by every instance
     public ConvertToPlace() {
-        places = getPlacesArray(); ;
+        places = PlaceIndex.PLACES;
     }
 
     /**
      * Converts coordiantes to places 
      * @param latitude,longitude the coordinates of the desired place
-     * @return new Place with the input coordinates
+     * @return the Place at the input coordinates, or an empty Place when there is none
      */
     public Place convert(float latitude, float longitude) {
-        
-        
-        for(int i=0;i<places.length;i++){
 
-            //compares the given latitude and longitude with the coordinates of the places
-            if (places[i].getLatitude()==latitude && places[i].getLongitude()==longitude){
-                return new Place(places[i].getName(),places[i].getPostcode(),latitude,longitude);
-            }
+        //looks up the bit patterns of the coordinates, the first place in the file wins like before
+        Integer index = PlaceIndex.EXACT.get(key(latitude, longitude));
+        if (index != null) {
+            return places[index];
         }
+
         //returns a null place when it cant find one
         return new Place("", "", 0.0f, 0.0f);
     }
 
+    /**
+     * Converts coordinates to the closest place
+     * @param latitude,longitude the coordinates
+     * @return the closest Place, or an empty Place when there are no places
+     */
+    public Place convertToNearest(float latitude, float longitude) {
+        Integer index = PlaceIndex.EXACT.get(key(latitude, longitude));
+        if (index != null) {
+            return places[index];
+        }
+
+        //otherwise searches the grid around the coordinates
+        if (latitude == latitude && longitude == longitude) {
+            SpatialGrid.Neighbours<Integer> nearest = PlaceIndex.GRID.nearest(latitude, longitude, 1, PlaceIndex.BY_FILE_ORDER);
+            if (nearest.size() > 0) {
+                return places[nearest.get(0)];
+            }
+        }
+        return new Place("", "", 0.0f, 0.0f);
+    }
+
+    /**
+     * The key of the exact lookup
+     * -0.0 is the same as 0.0 like the == comparison it replaces
+     * @param latitude,longitude the coordinates
+     * @return both bit patterns in one long
+     */
+    private static long key(float latitude, float longitude) {
+        int latitudeBits = Float.floatToIntBits(latitude + 0.0f);
+        int longitudeBits = Float.floatToIntBits(longitude + 0.0f);
+        return ((long) latitudeBits << 32) | (longitudeBits & 0xFFFFFFFFL);
+    }
+
+    /**
+     * The places, loaded once the first time they are needed
+     * The class is only initialised on first use, which the JVM makes thread safe
+     */
+    private static class PlaceIndex {
+
+        static final Place[] PLACES = loadPlaces();
+        static final LongHashMap<Integer> EXACT = new LongHashMap<>();
+        static final SpatialGrid<Integer> GRID = new SpatialGrid<>();
+
+        //earlier places in the file come first when the distance is the same
+        static final Comparator<Integer> BY_FILE_ORDER = new Comparator<Integer>() {
+            public int compare(Integer index1, Integer index2) {
+                return Integer.compare(index1, index2);
+            }
+        };
+
+        static {
+            for (int i = 0; i < PLACES.length; i++) {
+                float latitude = PLACES[i].getLatitude();
+                float longitude = PLACES[i].getLongitude();
+
+                //NaN never matched the == comparison, so it is left out
+                if (latitude != latitude || longitude != longitude) {
+                    continue;
+                }
+                long key = key(latitude, longitude);
+                if (!EXACT.containsKey(key)) {
+                    EXACT.put(key, i);
+                }
+                GRID.add(i, latitude, longitude);
+            }
+        }
+    }
+
+    /**
+     * The places from placeData.tsv
+     * @return a copy of the loaded places, the file is only read once
+     */
     public Place[] getPlacesArray() {
+        Place[] placeArray = new Place[places.length];
+        System.arraycopy(places, 0, placeArray, 0, places.length);
+        return placeArray;
+    }
+
+    //reads and parses placeData.tsv
+    private static Place[] loadPlaces() {
         Place[] placeArray = new Place[0];
 
         try {
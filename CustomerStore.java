@@ -4,85 +4,106 @@ import uk.ac.warwick.cs126.interfaces.ICustomerStore;
 import uk.ac.warwick.cs126.models.Customer;
 
 import java.io.*;
-import java.nio.charset.StandardCharsets;
 import java.text.ParseException;
-import java.text.SimpleDateFormat;
+import java.util.Comparator;
 import java.util.regex.Pattern;
 
-
-import org.apache.commons.io.IOUtils;
-
+import uk.ac.warwick.cs126.structures.Blacklist;
+import uk.ac.warwick.cs126.structures.LongHashMap;
 import uk.ac.warwick.cs126.structures.MyArrayList;
 import uk.ac.warwick.cs126.structures.SortedArrayList;
 
 import uk.ac.warwick.cs126.util.DataChecker;
+import uk.ac.warwick.cs126.util.DelimitedReader;
+import uk.ac.warwick.cs126.util.Sorter;
 import uk.ac.warwick.cs126.util.StringFormatter;
+import uk.ac.warwick.cs126.util.TimestampParser;
+import uk.ac.warwick.cs126.util.TopK;
 
 public class CustomerStore implements ICustomerStore {
 
+    //the order of the batches in addCustomer
+    private static final Comparator<Customer> BY_ID = new Comparator<Customer>() {
+        public int compare(Customer customer1, Customer customer2) {
+            return customer1.getID().compareTo(customer2.getID());
+        }
+    };
+
+    //the order of getCustomersByName: last name, first name, then ID
+    private static final Comparator<Customer> BY_NAME = new Comparator<Customer>() {
+        public int compare(Customer customer1, Customer customer2) {
+            int byLastName = customer1.getLastName().compareTo(customer2.getLastName());
+            if (byLastName != 0) {
+                return byLastName;
+            }
+            int byFirstName = customer1.getFirstName().compareTo(customer2.getFirstName());
+            if (byFirstName != 0) {
+                return byFirstName;
+            }
+            return customer1.getID().compareTo(customer2.getID());
+        }
+    };
+
     private MyArrayList<Customer> customerArray;
+    private LongHashMap<Customer> customerIndex;
     private DataChecker dataChecker;
-    private MyArrayList<Long> blackList; 
+    private Blacklist blackList; 
     private StringFormatter stringFormatter;
 
     /**
      * Constructor method
      * @param customerArray array that contains the customers
+     * @param customerIndex hash index of the customers by their ID
      * @param dataChecked object for the metods in the DataChecker class
-     * @param blackList array that contains the blacklisted items
+     * @param blackList hash set that contains the blacklisted IDs
      */
     public CustomerStore() {
         customerArray = new MyArrayList<>();
+        customerIndex = new LongHashMap<>();
         dataChecker = new DataChecker();
-        blackList = new MyArrayList<>();
+        blackList = new Blacklist();
         stringFormatter = new StringFormatter();
     }
 
+    /**
+     * Loads the customers from a csv stream
+     * The stream is parsed in a single pass, only the current row is kept in memory
+     * @param resource the csv data, the first row is the header
+     * @return array of the loaded customers
+     */
     public Customer[] loadCustomerDataToArray(InputStream resource) {
         Customer[] customerArray = new Customer[0];
 
         try {
-            byte[] inputStreamBytes = IOUtils.toByteArray(resource);
-            BufferedReader lineReader = new BufferedReader(new InputStreamReader(
-                    new ByteArrayInputStream(inputStreamBytes), StandardCharsets.UTF_8));
-
-            int lineCount = 0;
-            String line;
-            while ((line=lineReader.readLine()) != null) {
-                if (!("".equals(line))) {
-                    lineCount++;
-                }
-            }
-            lineReader.close();
-
-            Customer[] loadedCustomers = new Customer[lineCount - 1];
-
-            BufferedReader csvReader = new BufferedReader(new InputStreamReader(
-                    new ByteArrayInputStream(inputStreamBytes), StandardCharsets.UTF_8));
+            DelimitedReader csvReader = new DelimitedReader(resource, ',');
 
+            Customer[] loadedCustomers = new Customer[1024];
             int customerCount = 0;
-            String row;
-            SimpleDateFormat formatter = new SimpleDateFormat("yyyy-MM-dd hh:mm:ss");
-
-            csvReader.readLine();
-            while ((row = csvReader.readLine()) != null) {
-                if (!("".equals(row))) {
-                    String[] data = row.split(",");
-
-                    Customer customer = (new Customer(
-                            Long.parseLong(data[0]),
-                            data[1],
-                            data[2],
-                            formatter.parse(data[3]),
-                            Float.parseFloat(data[4]),
-                            Float.parseFloat(data[5])));
-
-                    loadedCustomers[customerCount++] = customer;
+            TimestampParser timestampParser = new TimestampParser();
+
+            //skips the header
+            csvReader.nextRow();
+            while (csvReader.nextRow()) {
+                Customer customer = (new Customer(
+                        csvReader.getLong(0),
+                        csvReader.getString(1),
+                        csvReader.getString(2),
+                        csvReader.getDate(3, timestampParser),
+                        csvReader.getFloat(4),
+                        csvReader.getFloat(5)));
+
+                //doubles the array when it is full
+                if (customerCount == loadedCustomers.length) {
+                    Customer[] bigger = new Customer[customerCount * 2];
+                    System.arraycopy(loadedCustomers, 0, bigger, 0, customerCount);
+                    loadedCustomers = bigger;
                 }
+                loadedCustomers[customerCount++] = customer;
             }
             csvReader.close();
 
-            customerArray = loadedCustomers;
+            customerArray = new Customer[customerCount];
+            System.arraycopy(loadedCustomers, 0, customerArray, 0, customerCount);
 
         } catch (IOException | ParseException e) {
             e.printStackTrace();
@@ -101,26 +122,22 @@ public class CustomerStore implements ICustomerStore {
         //checks if the customer is valid
         if(!dataChecker.isValid(customer)){return false;}
 
-        Customer tmp;
-
-        //checks if the id of the customer already exists in the array
+        //checks if the id of the customer already exists in the index
         //when yes it removes the customer with the same id and add the id to the blacklist array
-        for(int i = 0; i<customerArray.size();i++){
-            tmp = customerArray.get(i);
-            if (tmp.getID().equals(customer.getID())){
-                customerArray.remove(tmp);
-                blackList.add(customer.getID());
-                return false;
-            }
+        Customer tmp = customerIndex.remove(customer.getID());
+        if (tmp!=null){
+            customerArray.remove(tmp);
+            blackList.add(customer.getID());
+            return false;
         }
 
         //checks if the id of the user is already blacklisted
-        for(int i = 0;i<blackList.size();i++){
-            if(customer.getID().equals(blackList.get(i))){
-                return false;
-            }
+        if (blackList.contains(customer.getID())){
+            return false;
         }
 
+        customerIndex.put(customer.getID(), customer);
+
         //adds the first customer
         if (customerArray.isEmpty()==true){
             return customerArray.add(customer);
@@ -143,18 +160,81 @@ public class CustomerStore implements ICustomerStore {
     
     /**
      * Adds an array of customers to the customerArray
+     * The whole batch is validated and sorted once, then merged into the array,
+     * the result is the same as adding the customers one by one
      * @param customers array of customers to be added
      * @return true when all of the are added, false if at least one is not
      */
     public boolean addCustomer(Customer[] customers) {
         boolean notAdded=false;
 
-        //if one customer is not added -> notAdded becomes true and it will return false
-        for(int i =0 ;i<customers.length;i++){
-            if (!addCustomer(customers[i])){
+        //keeps the valid customers
+        //if one customer is not valid -> notAdded becomes true and it will return false
+        Customer[] valid = new Customer[customers.length];
+        int validCount = 0;
+        for(int i = 0;i<customers.length;i++){
+            if(dataChecker.isValid(customers[i])){
+                valid[validCount++]=customers[i];
+            }
+            else{
+                notAdded=true;
+            }
+        }
+
+        //sorts the batch once, the customers with the same id are now next to each other
+        //the sort is stable so they keep the order they were given in
+        Sorter.sort(valid, 0, validCount, BY_ID);
+
+        //applies the same rules to every group of customers with the same id:
+        // - if the id is already in the array, that customer is removed and the id is blacklisted
+        // - if the id is blacklisted, none of them are added
+        // - if the id appears more than once, the first is added then removed by the second one
+        Customer[] survivors = new Customer[validCount];
+        int survivorCount = 0;
+        int i = 0;
+        while(i<validCount){
+            Long id = valid[i].getID();
+            int j = i+1;
+            while(j<validCount && valid[j].getID().equals(id)){
+                j++;
+            }
+
+            if(customerIndex.remove(id)!=null){
+                blackList.add(id);
+                notAdded=true;
+            }
+            else if(blackList.contains(id)){
                 notAdded=true;
             }
+            else if(j-i>1){
+                blackList.add(id);
+                notAdded=true;
+            }
+            else{
+                survivors[survivorCount++]=valid[i];
+            }
+            i=j;
         }
+
+        //merges the sorted survivors with the array, which is sorted by id too
+        //the customers that were removed from the index are left out
+        MyArrayList<Customer> merged = new MyArrayList<>();
+        int a = 0;
+        int b = 0;
+        while(a<customerArray.size() || b<survivorCount){
+            if(a<customerArray.size() && customerIndex.get(customerArray.get(a).getID())==null){
+                a++;
+            }
+            else if(b==survivorCount || (a<customerArray.size() && customerArray.get(a).getID().compareTo(survivors[b].getID())<0)){
+                merged.add(customerArray.get(a++));
+            }
+            else{
+                customerIndex.put(survivors[b].getID(), survivors[b]);
+                merged.add(survivors[b++]);
+            }
+        }
+        customerArray = merged;
+
         return !notAdded;   
     }
 
@@ -164,18 +244,14 @@ public class CustomerStore implements ICustomerStore {
      * @return customer with the same id or null if there is no customer with such id
      */
     public Customer getCustomer(Long id) {
-        Customer tmp=null;
 
-        //linear search through the array of customers
-        for(int i = 0; i<customerArray.size();i++){
-            tmp=customerArray.get(i);
-            if(tmp.getID().equals(id)){         
-                return tmp;
-            }
+        //if there is no id there is no match
+        if(id==null){
+            return null;
         }
 
-        //if there is no match
-        return null;
+        //constant time lookup in the hash index
+        return customerIndex.get(id);
     }
 
     /**
@@ -296,6 +372,39 @@ public class CustomerStore implements ICustomerStore {
         return allCustomers;
     }
 
+    /**
+     * One page of all the customers in the order of the methods above
+     * Only the customers up to the end of the page are kept in a bounded heap,
+     * the rest of the customers are never sorted
+     * @param offset the position of the first customer of the page
+     * @param limit the largest number of customers on the page
+     * @return the customers of the page, empty when the offset is past the end
+     */
+    public Customer[] getCustomersByName(int offset, int limit) {
+        int total = customerArray.size();
+        if (offset<0 || limit<0 || offset>=total){
+            return new Customer[0];
+        }
+        int size = Math.min(limit, total-offset);
+
+        TopK<Customer> first = new TopK<>(offset+size, BY_NAME);
+        for(int i = 0;i<total;i++){
+            first.offer(customerArray.get(i));
+        }
+        Customer[] head = new Customer[first.size()];
+        first.drainTo(head);
+
+        //the customers before the page are dropped
+        Customer[] page = new Customer[size];
+        System.arraycopy(head, offset, page, 0, size);
+        return page;
+    }
+
+    //the first k customers in the order of the methods above
+    public Customer[] getCustomersByName(int k) {
+        return getCustomersByName(0, k);
+    }
+
     /**
      * Searches for the customers that contain a certain String
      * @param searchTerm the String that we search for between the customers
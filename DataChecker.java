@@ -51,53 +51,69 @@ public class DataChecker implements IDataChecker {
         return result;
     }
 
+    //the smallest and the largest number with 16 digits
+    private static final long SMALLEST_ID = 1000000000000000L;
+    private static final long LARGEST_ID = 9999999999999999L;
+
     /**
      * Checks if the ID is valis
      * @param inputID the ID to be checked
-     * @return false or true
+     * @return false or true, false when it is null
      */
     public boolean isValid(Long inputID) {
-        Long num = inputID;
-        int count = 0;
-        Long tmp = num;
-        Long remainder = 0L;
+        return inputID!=null && isValidID(inputID.longValue());
+    }
+
+    /**
+     * Checks if the ID is valid without making any objects
+     * A valid ID has exactly 16 digits, none of them is 0 and no digit is there more than 3 times
+     * @param id the ID to be checked
+     * @return true when valid, false when not
+     */
+    public static boolean isValidID(long id) {
 
-        //If the ID contains a 0 that means that is invalid, thus returns false
-        if (String.valueOf(num).contains("0")){
+        //A valid ID must consist exactly 16 characters
+        if (id<SMALLEST_ID || id>LARGEST_ID){
             return false;
         }
-        
-        //A valid ID must consist exactly 16 characters
-        //Returns false if not
-        while (tmp>=1){
+
+        //the count of each digit is kept in 4 bits of one long
+        //a count never gets above 3, so the 4 bits are enough
+        long digitCounts = 0;
+        long tmp = id;
+        for (int i = 0;i<16;i++){
+            int digit = (int)(tmp%10);
             tmp /= 10;
-            count++;
-        }
-        if(count!=16){
-            return false;
+
+            //If the ID contains a 0 that means that is invalid
+            if (digit==0){
+                return false;
+            }
+
+            //A valid cannot consist more than 3 of each digit
+            int shift = digit*4;
+            if (((digitCounts>>>shift)&0xF)==3){
+                return false;
+            }
+            digitCounts += 1L<<shift;
         }
 
-        //A valid cannot consist more than 3 of each digit
-        //If it consists more the ID is invalid, so it returns false 
-        tmp=num;
-        Long[] digitArray = new Long[10];
-        for(int i=0;i<digitArray.length;i++){
-            digitArray[i]=0L;
+        //Otherwise the ID is valid
+        return true;
+    }
+
+    /**
+     * Checks many IDs at once
+     * @param ids the IDs to be checked
+     * @param out out[i] is set to true when ids[i] is valid, false when not
+     */
+    public static void validateIds(long[] ids, boolean[] out) {
+        if (out.length<ids.length){
+            throw new IllegalArgumentException("The output has " + out.length + " places for " + ids.length + " IDs");
         }
-        while (tmp > 0) {
-            remainder = tmp % 10;
-            digitArray[remainder.intValue()]++;
-            tmp= tmp / 10;
+        for (int i = 0;i<ids.length;i++){
+            out[i] = isValidID(ids[i]);
         }
-        for (int counter = 0; counter < digitArray.length; counter++) {
-            // get the count
-            Long digitCount = digitArray[counter];
-            if (digitCount > 3) {
-                return false;
-            }
-        }           
-        //Otherwise the ID is valid so the method returns true
-        return true; 
     }
 
     /**
@@ -0,0 +1,206 @@
+package uk.ac.warwick.cs126.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.text.ParseException;
+import java.util.Date;
+
+public class DelimitedReader implements Closeable {
+
+    private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+
+    private final InputStream input;
+    private final byte delimiter;
+
+    //the bytes read from the stream, only the current row and the unread bytes are kept
+    private byte[] buffer;
+    private int position;
+    private int limit;
+    private boolean endOfStream;
+
+    //the fields of the current row as [start, end) ranges in the buffer
+    private int[] fieldStarts;
+    private int[] fieldEnds;
+    private int fieldCount;
+
+    /**
+     * Constructor method
+     * Reads delimiter separated rows straight from the stream, one row at a time
+     * @param input the stream to read
+     * @param delimiter the character between the fields, for example ',' or '\t'
+     */
+    public DelimitedReader(InputStream input, char delimiter) {
+        this.input = input;
+        this.delimiter = (byte) delimiter;
+        buffer = new byte[INITIAL_BUFFER_SIZE];
+        fieldStarts = new int[32];
+        fieldEnds = new int[32];
+    }
+
+    /**
+     * Moves to the next non-empty row
+     * @return true when there is a row, false at the end of the stream
+     * @throws IOException when the stream can not be read
+     */
+    public boolean nextRow() throws IOException {
+        while (true) {
+            int lineEnd = -1;
+            int scan = position;
+            while (true) {
+                for (; scan < limit; scan++) {
+                    if (buffer[scan] == '\n') {
+                        lineEnd = scan;
+                        break;
+                    }
+                }
+                if (lineEnd >= 0 || endOfStream) {
+                    break;
+                }
+
+                //the row is not complete yet, reads more bytes and continues from where the scan stopped
+                scan -= position;
+                fill();
+                scan += position;
+            }
+
+            int rowStart = position;
+            int rowEnd;
+            if (lineEnd >= 0) {
+                rowEnd = lineEnd;
+                position = lineEnd + 1;
+            }
+            else if (position < limit) {
+                rowEnd = limit;
+                position = limit;
+            }
+            else {
+                fieldCount = 0;
+                return false;
+            }
+
+            //ignores the \r of windows line endings
+            if (rowEnd > rowStart && buffer[rowEnd - 1] == '\r') {
+                rowEnd--;
+            }
+
+            //skips the empty lines like the loaders always did
+            if (rowEnd > rowStart) {
+                splitFields(rowStart, rowEnd);
+                return true;
+            }
+        }
+    }
+
+    //moves the unread bytes to the front of the buffer, grows it when a row does not fit, then reads
+    private void fill() throws IOException {
+        int unread = limit - position;
+        if (position > 0) {
+            System.arraycopy(buffer, position, buffer, 0, unread);
+            position = 0;
+            limit = unread;
+        }
+        if (limit == buffer.length) {
+            byte[] bigger = new byte[buffer.length * 2];
+            System.arraycopy(buffer, 0, bigger, 0, limit);
+            buffer = bigger;
+        }
+        int read = input.read(buffer, limit, buffer.length - limit);
+        if (read < 0) {
+            endOfStream = true;
+        }
+        else {
+            limit += read;
+        }
+    }
+
+    //records where each field of the row starts and ends
+    private void splitFields(int rowStart, int rowEnd) {
+        fieldCount = 0;
+        int start = rowStart;
+        for (int i = rowStart; i <= rowEnd; i++) {
+            if (i == rowEnd || buffer[i] == delimiter) {
+                if (fieldCount == fieldStarts.length) {
+                    int[] biggerStarts = new int[fieldCount * 2];
+                    int[] biggerEnds = new int[fieldCount * 2];
+                    System.arraycopy(fieldStarts, 0, biggerStarts, 0, fieldCount);
+                    System.arraycopy(fieldEnds, 0, biggerEnds, 0, fieldCount);
+                    fieldStarts = biggerStarts;
+                    fieldEnds = biggerEnds;
+                }
+                fieldStarts[fieldCount] = start;
+                fieldEnds[fieldCount] = i;
+                fieldCount++;
+                start = i + 1;
+            }
+        }
+    }
+
+    public int getFieldCount() {
+        return fieldCount;
+    }
+
+    /**
+     * The buffer that holds the current row
+     * It is only valid until the next call of nextRow
+     * @return the buffer
+     */
+    public byte[] getBuffer() {
+        return buffer;
+    }
+
+    public int getFieldStart(int field) {
+        checkField(field);
+        return fieldStarts[field];
+    }
+
+    public int getFieldEnd(int field) {
+        checkField(field);
+        return fieldEnds[field];
+    }
+
+    public String getString(int field) {
+        checkField(field);
+        return FieldParser.parseString(buffer, fieldStarts[field], fieldEnds[field]);
+    }
+
+    public long getLong(int field) {
+        checkField(field);
+        return FieldParser.parseLong(buffer, fieldStarts[field], fieldEnds[field]);
+    }
+
+    public int getInt(int field) {
+        checkField(field);
+        return FieldParser.parseInt(buffer, fieldStarts[field], fieldEnds[field]);
+    }
+
+    public float getFloat(int field) {
+        checkField(field);
+        return FieldParser.parseFloat(buffer, fieldStarts[field], fieldEnds[field]);
+    }
+
+    public boolean getBoolean(int field) {
+        checkField(field);
+        return FieldParser.parseBoolean(buffer, fieldStarts[field], fieldEnds[field]);
+    }
+
+    public Date getDate(int field, TimestampParser parser) throws ParseException {
+        checkField(field);
+        return parser.parse(buffer, fieldStarts[field], fieldEnds[field]);
+    }
+
+    public <E extends Enum<E>> E getEnum(int field, E[] constants) {
+        checkField(field);
+        return FieldParser.parseEnum(constants, buffer, fieldStarts[field], fieldEnds[field]);
+    }
+
+    private void checkField(int field) {
+        if (field < 0 || field >= fieldCount) {
+            throw new ArrayIndexOutOfBoundsException("Field " + field + " of " + fieldCount);
+        }
+    }
+
+    public void close() throws IOException {
+        input.close();
+    }
+}
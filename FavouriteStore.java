@@ -6,28 +6,136 @@ import uk.ac.warwick.cs126.models.Favourite;
 import java.io.*;
 import java.nio.charset.StandardCharsets;
 import java.text.ParseException;
-import java.text.SimpleDateFormat;
+import java.util.Comparator;
 
 import org.apache.commons.io.IOUtils;
 
+import uk.ac.warwick.cs126.structures.Blacklist;
+import uk.ac.warwick.cs126.structures.LongHashMap;
+import uk.ac.warwick.cs126.structures.LongOrdinals;
 import uk.ac.warwick.cs126.structures.MyArrayList;
+import uk.ac.warwick.cs126.structures.RoaringBitmap;
 
 import uk.ac.warwick.cs126.util.DataChecker;
+import uk.ac.warwick.cs126.util.Sorter;
+import uk.ac.warwick.cs126.util.TimestampParser;
 import uk.ac.warwick.cs126.structures.HashMap;
 
 
 public class FavouriteStore implements IFavouriteStore {
 
+    //the favourites with the same date: the larger id first, like the array of all favourites
+    private static final Comparator<Favourite> LARGER_ID_FIRST = new Comparator<Favourite>() {
+        public int compare(Favourite favourite1, Favourite favourite2) {
+            return favourite2.getID().compareTo(favourite1.getID());
+        }
+    };
+
+    //the restaurant ids with the same date: the smaller one first
+    private static final Comparator<Long> SMALLER_ID_FIRST = new Comparator<Long>() {
+        public int compare(Long id1, Long id2) {
+            return id1.compareTo(id2);
+        }
+    };
+
     private MyArrayList<Favourite> favouriteArray;
     private DataChecker dataChecker;
-    private MyArrayList<Long> blackList;
+    private Blacklist blackList;
+    private LongHashMap<FavouriteList> favouritesOfCustomer;
+    private LongHashMap<FavouriteList> favouritesOfRestaurant;
+    private LongOrdinals customerOrdinals;
+    private LongOrdinals restaurantOrdinals;
+    private LongHashMap<RoaringBitmap> restaurantSetOfCustomer;
+    private LongHashMap<RoaringBitmap> customerSetOfRestaurant;
+
+    /**
+     * The favourites of one customer or one restaurant
+     * sorted by the id on the other side, a customer can favourite a restaurant more than once
+     */
+    private static class FavouriteList {
+        long[] ids = new long[4];
+        Favourite[] favourites = new Favourite[4];
+        int size;
+
+        //the first index where the id is not smaller than the given id
+        int lowerBound(long id) {
+            int left = 0;
+            int right = size;
+            while (left < right) {
+                int middle = (left + right) >>> 1;
+                if (ids[middle] < id) {
+                    left = middle + 1;
+                }
+                else {
+                    right = middle;
+                }
+            }
+            return left;
+        }
+
+        //the first index where the id is larger than the given id
+        int upperBound(long id) {
+            int left = 0;
+            int right = size;
+            while (left < right) {
+                int middle = (left + right) >>> 1;
+                if (ids[middle] <= id) {
+                    left = middle + 1;
+                }
+                else {
+                    right = middle;
+                }
+            }
+            return left;
+        }
+
+        void add(long id, Favourite favourite) {
+            if (size == ids.length) {
+                long[] biggerIDs = new long[size * 2];
+                Favourite[] biggerFavourites = new Favourite[size * 2];
+                System.arraycopy(ids, 0, biggerIDs, 0, size);
+                System.arraycopy(favourites, 0, biggerFavourites, 0, size);
+                ids = biggerIDs;
+                favourites = biggerFavourites;
+            }
+            int position = upperBound(id);
+            System.arraycopy(ids, position, ids, position + 1, size - position);
+            System.arraycopy(favourites, position, favourites, position + 1, size - position);
+            ids[position] = id;
+            favourites[position] = favourite;
+            size++;
+        }
+
+        boolean contains(long id) {
+            int index = lowerBound(id);
+            return index < size && ids[index] == id;
+        }
+
+        void remove(long id, Favourite favourite) {
+            for (int i = lowerBound(id); i < size && ids[i] == id; i++) {
+                if (favourites[i] == favourite) {
+                    System.arraycopy(ids, i + 1, ids, i, size - i - 1);
+                    System.arraycopy(favourites, i + 1, favourites, i, size - i - 1);
+                    size--;
+                    favourites[size] = null;
+                    return;
+                }
+            }
+        }
+    }
 
     //Constructor method
     public FavouriteStore() {
 
         favouriteArray = new MyArrayList<>(); // contains the favourites
         dataChecker = new DataChecker();      // enables to use the method from the DataChecker class    
-        blackList = new MyArrayList<>();      // stores the blacklisted elements
+        blackList = new Blacklist();          // stores the blacklisted IDs
+        favouritesOfCustomer = new LongHashMap<>();   // the favourites of each customer by restaurant id
+        favouritesOfRestaurant = new LongHashMap<>(); // the favourites of each restaurant by customer id
+        customerOrdinals = new LongOrdinals();        // dense numbers for the customer ids
+        restaurantOrdinals = new LongOrdinals();      // dense numbers for the restaurant ids
+        restaurantSetOfCustomer = new LongHashMap<>(); // the restaurant ordinals each customer favourited
+        customerSetOfRestaurant = new LongHashMap<>(); // the customer ordinals that favourited each restaurant
     }
 
     public Favourite[] loadFavouriteDataToArray(InputStream resource) {
@@ -54,7 +162,7 @@ public class FavouriteStore implements IFavouriteStore {
 
             int favouriteCount = 0;
             String row;
-            SimpleDateFormat formatter = new SimpleDateFormat("yyyy-MM-dd hh:mm:ss");
+            TimestampParser timestampParser = new TimestampParser();
 
             csvReader.readLine();
             while ((row = csvReader.readLine()) != null) {
@@ -64,7 +172,7 @@ public class FavouriteStore implements IFavouriteStore {
                             Long.parseLong(data[0]),
                             Long.parseLong(data[1]),
                             Long.parseLong(data[2]),
-                            formatter.parse(data[3]));
+                            timestampParser.parse(data[3]));
                     loadedFavourites[favouriteCount++] = favourite;
                 }
             }
@@ -92,10 +200,8 @@ public class FavouriteStore implements IFavouriteStore {
         Favourite tmp;
 
         //checks if favourite is blacklisted
-        for(int i = 0;i<blackList.size();i++){
-            if(favourite.getID().equals(blackList.get(i))){
-                return false;
-            }
+        if (blackList.contains(favourite.getID())){
+            return false;
         }
 
         //checks if there is a favourite with the same ID already
@@ -106,6 +212,7 @@ public class FavouriteStore implements IFavouriteStore {
             tmp = favouriteArray.get(i);
             if (tmp.getID().equals(favourite.getID())){
                 favouriteArray.remove(tmp);
+                unlink(tmp);
                 blackList.add(favourite.getID());
                 return false;
             }
@@ -113,11 +220,15 @@ public class FavouriteStore implements IFavouriteStore {
                 if(favourite.getDateFavourited().compareTo(tmp.getDateFavourited())<0){
                     blackList.add(tmp.getID());
                     favouriteArray.set(i, favourite);
+                    unlink(tmp);
+                    link(favourite);
                     return true;
                 }
             }
         }
-        
+
+        link(favourite);
+
         //if the array is empty, adds to the array
         if (favouriteArray.isEmpty()==true){          
             return favouriteArray.add(favourite);         
@@ -143,6 +254,66 @@ public class FavouriteStore implements IFavouriteStore {
         return favouriteArray.add(favourite);
     }
 
+    //adds the favourite to the lists of its customer and its restaurant
+    private void link(Favourite favourite) {
+        long customerID = favourite.getCustomerID();
+        long restaurantID = favourite.getRestaurantID();
+        FavouriteList ofCustomer = favouritesOfCustomer.get(customerID);
+        if (ofCustomer==null){
+            ofCustomer = new FavouriteList();
+            favouritesOfCustomer.put(customerID, ofCustomer);
+        }
+        ofCustomer.add(restaurantID, favourite);
+        FavouriteList ofRestaurant = favouritesOfRestaurant.get(restaurantID);
+        if (ofRestaurant==null){
+            ofRestaurant = new FavouriteList();
+            favouritesOfRestaurant.put(restaurantID, ofRestaurant);
+        }
+        ofRestaurant.add(customerID, favourite);
+
+        //the same pair in the bitmaps
+        RoaringBitmap restaurants = restaurantSetOfCustomer.get(customerID);
+        if (restaurants==null){
+            restaurants = new RoaringBitmap();
+            restaurantSetOfCustomer.put(customerID, restaurants);
+        }
+        restaurants.add(restaurantOrdinals.ordinalOf(restaurantID));
+        RoaringBitmap customers = customerSetOfRestaurant.get(restaurantID);
+        if (customers==null){
+            customers = new RoaringBitmap();
+            customerSetOfRestaurant.put(restaurantID, customers);
+        }
+        customers.add(customerOrdinals.ordinalOf(customerID));
+    }
+
+    //removes the favourite from the lists of its customer and its restaurant
+    private void unlink(Favourite favourite) {
+        long customerID = favourite.getCustomerID();
+        long restaurantID = favourite.getRestaurantID();
+        FavouriteList ofCustomer = favouritesOfCustomer.get(customerID);
+        if (ofCustomer!=null){
+            ofCustomer.remove(restaurantID, favourite);
+
+            //the pair leaves the bitmaps when it was the only favourite of the pair
+            if (!ofCustomer.contains(restaurantID)){
+                restaurantSetOfCustomer.get(customerID).remove(restaurantOrdinals.find(restaurantID));
+                customerSetOfRestaurant.get(restaurantID).remove(customerOrdinals.find(customerID));
+            }
+            if (ofCustomer.size==0){
+                favouritesOfCustomer.remove(customerID);
+                restaurantSetOfCustomer.remove(customerID);
+            }
+        }
+        FavouriteList ofRestaurant = favouritesOfRestaurant.get(restaurantID);
+        if (ofRestaurant!=null){
+            ofRestaurant.remove(customerID, favourite);
+            if (ofRestaurant.size==0){
+                favouritesOfRestaurant.remove(restaurantID);
+                customerSetOfRestaurant.remove(restaurantID);
+            }
+        }
+    }
+
     /**
      * Adds an array of favourites to the favouriteArray
      * @param favourites array of customers to be added
@@ -316,49 +487,53 @@ public class FavouriteStore implements IFavouriteStore {
         return allFavourites;
     }
 
-    //same as the method above but it only does it with an input array of customers
-    public Favourite[] getFavouritesByCustomerID(Long id) {
-        Favourite[] favourites = new Favourite[favouriteArray.size()];
-        favourites = getFavouritesByDate();
-        Favourite[] allFavourites = new Favourite[0];
-
-        int size=0;
-        for (int i = 0;i<favourites.length;i++){
-            if(favourites[i].getCustomerID().equals(id)){
-                Favourite[] tempFavourites = new Favourite[size+1];
-                for(int j = 0;j<size;j++){
-                    tempFavourites[j]=allFavourites[j];
-                }
-                tempFavourites[size]=favourites[i];
-                allFavourites=tempFavourites;
-                size++;
-            }
+    /**
+     * One page of the favourites in the order of the method above
+     * Only the favourites of the page are copied
+     * @param offset the position of the first favourite of the page
+     * @param limit the largest number of favourites on the page
+     * @return the favourites of the page, empty when the offset is past the end
+     */
+    public Favourite[] getFavouritesByDate(int offset, int limit) {
+        int total = favouriteArray.size();
+        if (offset<0 || limit<0 || offset>=total){
+            return new Favourite[0];
         }
+        Favourite[] page = new Favourite[Math.min(limit, total-offset)];
+        for(int i = 0;i<page.length;i++){
+            page[i]=favouriteArray.get(offset+i);
+        }
+        return page;
+    }
 
-        return allFavourites;
+    //the first k favourites in the order of the method above
+    public Favourite[] getFavouritesByDate(int k) {
+        return getFavouritesByDate(0, k);
+    }
 
+    //same as the method above but it only does it with the favourites of a customer
+    public Favourite[] getFavouritesByCustomerID(Long id) {
+        return newestFirst(id==null ? null : favouritesOfCustomer.get(id));
     }
 
-    //same as the method above but it only does it with an input array of customers
+    //same as the method above but it only does it with the favourites of a restaurant
     public Favourite[] getFavouritesByRestaurantID(Long id) {
-        Favourite[] favourites = new Favourite[favouriteArray.size()];
-        favourites = getFavouritesByDate();
-        Favourite[] allFavourites = new Favourite[0];
+        return newestFirst(id==null ? null : favouritesOfRestaurant.get(id));
+    }
 
-        int size=0;
-        for (int i = 0;i<favourites.length;i++){
-            if(favourites[i].getRestaurantID().equals(id)){
-                Favourite[] tempFavourites = new Favourite[size+1];
-                for(int j = 0;j<size;j++){
-                    tempFavourites[j]=allFavourites[j];
-                }
-                tempFavourites[size]=favourites[i];
-                allFavourites=tempFavourites;
-                size++;
-            }
+    //the favourites of the list from the newest to the oldest, like the array of all favourites
+    private static Favourite[] newestFirst(FavouriteList list) {
+        if (list==null){
+            return new Favourite[0];
         }
-
-        return allFavourites;
+        Favourite[] result = new Favourite[list.size];
+        long[] dates = new long[list.size];
+        for(int i = 0;i<list.size;i++){
+            result[i]=list.favourites[i];
+            dates[i]=list.favourites[i].getDateFavourited().getTime();
+        }
+        Sorter.sortByKey(result, dates, true, LARGER_ID_FIRST);
+        return result;
     }
 
     /**
@@ -367,134 +542,187 @@ public class FavouriteStore implements IFavouriteStore {
      * @return an array of restourants that both customers favourited
      */
     public Long[] getCommonFavouriteRestaurants(Long customer1ID, Long customer2ID) {
+        return compareFavourites(customer1ID, customer2ID, true, false, false);
+    }
+
+    /**
+     * Gets the restaurants that were favourited by customer1 but not customer2
+     * @param customer1ID the id of the first customer 
+     * @param customer2ID the id of the second customer
+     * @return an array of restuarants only favourited by customer1
+     */
+    public Long[] getMissingFavouriteRestaurants(Long customer1ID, Long customer2ID) {
+        return compareFavourites(customer1ID, customer2ID, false, true, false);
+    }
 
-        // new array of favourite restaurants of customer1
-        MyArrayList<Long> contains1Array = new MyArrayList<>();
-        // new array of favourite restaurants of customer2
-        MyArrayList<Long> contains2Array = new MyArrayList<>(); 
-        // new array of favourite restaurants for both customers
-        MyArrayList<Long> common = new MyArrayList<>();
+    /**
+     * Gets the restaurants that were favourited by either customer1 or customer2 but not both
+     * @param customer1ID the id of the first customer 
+     * @param customer2ID the id of the second customer
+     * @return an array of not commonly favourited restaurants
+     */
+    public Long[] getNotCommonFavouriteRestaurants(Long customer1ID, Long customer2ID) {
+        return compareFavourites(customer1ID, customer2ID, false, true, true);
+    }
 
-        //first the favourite restaurants are added to the two arrays
-        //if the customerID matches one of the customers ID
-        Favourite[] favourites = new Favourite[favouriteArray.size()];
-        favourites = getFavouritesByDate();
-        for (int i = 0;i<favourites.length;i++){
-            if(favourites[i].getCustomerID().equals(customer1ID)){
-                contains1Array.add(favourites[i].getRestaurantID());
-            }
-            if(favourites[i].getCustomerID().equals(customer2ID)){
-                contains2Array.add(favourites[i].getRestaurantID());
+    /**
+     * Gets the restaurants favourited by at least one of the customers
+     * @param customerIDs the IDs of the customers
+     * @return the restaurant ids in ascending order
+     */
+    public Long[] getFavouriteRestaurantsOfAny(Long[] customerIDs) {
+        RoaringBitmap union = new RoaringBitmap();
+        for (int i = 0;i<customerIDs.length;i++){
+            RoaringBitmap restaurants = customerIDs[i]==null ? null : restaurantSetOfCustomer.get(customerIDs[i]);
+            if (restaurants!=null){
+                union = RoaringBitmap.or(union, restaurants);
             }
         }
+        return toIDs(union, restaurantOrdinals);
+    }
 
-        //search through the maller array
-        //if the other array contains that element too it gets added to the common array
-        if(contains1Array.size()<=contains2Array.size()){
-            for(int i = 0;i<contains1Array.size();i++){
-                if(contains2Array.contains(contains1Array.get(i))){
-                    common.add(contains1Array.get(i));
-                }
-            }
-        }
-        else{
-            for(int i = 0;i<contains2Array.size();i++){
-                if(contains1Array.contains(contains2Array.get(i))){
-                    common.add(contains2Array.get(i));
-                }
-            }
-        }
+    /**
+     * Gets the restaurants favourited by every one of the customers
+     * @param customerIDs the IDs of the customers
+     * @return the restaurant ids in ascending order, empty when there are no customers
+     */
+    public Long[] getFavouriteRestaurantsOfAll(Long[] customerIDs) {
+        return toIDs(intersect(customerIDs, restaurantSetOfCustomer), restaurantOrdinals);
+    }
 
-        //lastly we insert the elements in a new array which will be the result
-        Long[] result = new Long[common.size()];
-        for(int i = 0;i<common.size();i++){
-            result[i]=common.get(i);
+    /**
+     * Gets the restaurants favourited by a customer but by none of the other customers
+     * @param customerID the ID of the customer
+     * @param otherCustomerIDs the IDs of the other customers
+     * @return the restaurant ids in ascending order
+     */
+    public Long[] getFavouriteRestaurantsExcept(Long customerID, Long[] otherCustomerIDs) {
+        RoaringBitmap restaurants = customerID==null ? null : restaurantSetOfCustomer.get(customerID);
+        if (restaurants==null){
+            return new Long[0];
+        }
+        for (int i = 0;i<otherCustomerIDs.length && !restaurants.isEmpty();i++){
+            RoaringBitmap others = otherCustomerIDs[i]==null ? null : restaurantSetOfCustomer.get(otherCustomerIDs[i]);
+            if (others!=null){
+                restaurants = RoaringBitmap.andNot(restaurants, others);
+            }
         }
-
-        //return the commonly-favourited restaurants
-        return result;
-        
+        return toIDs(restaurants, restaurantOrdinals);
     }
 
     /**
-     * Gets the restaurants that were favourited by customer1 but not customer2
-     * @param customer1ID the id of the first customer 
-     * @param customer2ID the id of the second customer
-     * @return an array of restuarants only favourited by customer1
+     * Gets the customers who favourited every one of the restaurants
+     * @param restaurantIDs the IDs of the restaurants
+     * @return the customer ids in ascending order, empty when there are no restaurants
      */
-    public Long[] getMissingFavouriteRestaurants(Long customer1ID, Long customer2ID) {
-        MyArrayList<Long> missingArray = new MyArrayList<>(); // new array
+    public Long[] getCustomersWhoFavouritedAll(Long[] restaurantIDs) {
+        return toIDs(intersect(restaurantIDs, customerSetOfRestaurant), customerOrdinals);
+    }
 
-        Favourite[] favourites = new Favourite[favouriteArray.size()];
-        favourites = getFavouritesByDate();
-        
-        //gets the restaurants favourited by customer1
-        for (int i = 0; i < favourites.length; i++) {
-            if(favourites[i].getCustomerID().equals(customer1ID)){             
-                missingArray.add(favourites[i].getRestaurantID());
+    //the intersection of the sets of the ids, starting from the smallest set
+    private static RoaringBitmap intersect(Long[] ids, LongHashMap<RoaringBitmap> sets) {
+        if (ids.length==0){
+            return new RoaringBitmap();
+        }
+        RoaringBitmap[] bitmaps = new RoaringBitmap[ids.length];
+        int[] cardinalities = new int[ids.length];
+        for (int i = 0;i<ids.length;i++){
+            bitmaps[i] = ids[i]==null ? null : sets.get(ids[i]);
+            if (bitmaps[i]==null){
+                return new RoaringBitmap();
             }
+            cardinalities[i] = bitmaps[i].cardinality();
         }
-
-        //gets the restaurants favourited by both of them
-        //removes the common items from the missing array
-        Long[] commonArray = getCommonFavouriteRestaurants(customer1ID, customer2ID);
-        for(int i = 0;i<commonArray.length;i++){
-            missingArray.remove(commonArray[i]);
+        int smallest = 0;
+        for (int i = 1;i<ids.length;i++){
+            if (cardinalities[i]<cardinalities[smallest]){
+                smallest = i;
+            }
         }
-        
-        //puts the resulting elements into an array
-        Long[] result = new Long[missingArray.size()];
-        for(int i =0;i<missingArray.size();i++){
-            result[i]=missingArray.get(i);
+        RoaringBitmap result = bitmaps[smallest];
+        for (int i = 0;i<ids.length && !result.isEmpty();i++){
+            if (i!=smallest){
+                result = RoaringBitmap.and(result, bitmaps[i]);
+            }
         }
-        
+        return result;
+    }
+
+    //the ids of the ordinals in the set, in ascending order
+    private static Long[] toIDs(RoaringBitmap set, LongOrdinals ordinals) {
+        int[] members = set.toArray();
+        Long[] result = new Long[members.length];
+        long[] ids = new long[members.length];
+        for (int i = 0;i<members.length;i++){
+            ids[i] = ordinals.idOf(members[i]);
+            result[i] = ids[i];
+        }
+
+        //the ids are unique, so nothing is needed for the ties
+        Sorter.sortByKey(result, ids, false, null);
         return result;
     }
 
     /**
-     * Gets the restaurants that were favourited by either customer1 or customer2 but not both
-     * @param customer1ID the id of the first customer 
-     * @param customer2ID the id of the second customer
-     * @return an array of not commonly favourited restaurants
+     * Merges the favourite restaurants of two customers, both lists are sorted by the restaurant id
+     * Every restaurant is only returned once, with the date of its newest favourite
+     * @param customer1ID,customer2ID the IDs of the customers to compare
+     * @param inBoth true to return the restaurants favourited by both customers
+     * @param onlyFirst true to return the restaurants only favourited by customer1
+     * @param onlySecond true to return the restaurants only favourited by customer2
+     * @return the restaurant ids from the newest favourite to the oldest, then by their id
      */
-    public Long[] getNotCommonFavouriteRestaurants(Long customer1ID, Long customer2ID) {
-        MyArrayList<Long> missingArray1 = new MyArrayList<>(); // new array
-        MyArrayList<Long> missingArray2 = new MyArrayList<>(); // new array
+    private Long[] compareFavourites(Long customer1ID, Long customer2ID, boolean inBoth, boolean onlyFirst, boolean onlySecond) {
+        FavouriteList first = customer1ID==null ? null : favouritesOfCustomer.get(customer1ID);
+        FavouriteList second = customer2ID==null ? null : favouritesOfCustomer.get(customer2ID);
+        int firstSize = first==null ? 0 : first.size;
+        int secondSize = second==null ? 0 : second.size;
+
+        long[] ids = new long[firstSize+secondSize];
+        long[] dates = new long[ids.length];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        while (i<firstSize || j<secondSize){
+
+            //the smallest restaurant id that is left in either list
+            long id;
+            if (j==secondSize || (i<firstSize && first.ids[i]<=second.ids[j])){
+                id = first.ids[i];
+            }
+            else{
+                id = second.ids[j];
+            }
 
-        //the array of commonly favourited restaurants
-        Favourite[] favourites = new Favourite[favouriteArray.size()];
-        favourites = getFavouritesByDate();
-        Long[] commonArray = getCommonFavouriteRestaurants(customer1ID, customer2ID);
-        
-        //the array of favourited restaurants by customer1-common ones
-        for (int i = 0; i < favourites.length; i++) {
-            if(favourites[i].getCustomerID().equals(customer1ID)){             
-                missingArray1.add(favourites[i].getRestaurantID());
+            //the newest favourite of that restaurant in each list
+            long firstDate = Long.MIN_VALUE;
+            boolean inFirst = false;
+            for (; i<firstSize && first.ids[i]==id; i++){
+                inFirst = true;
+                firstDate = Math.max(firstDate, first.favourites[i].getDateFavourited().getTime());
+            }
+            long secondDate = Long.MIN_VALUE;
+            boolean inSecond = false;
+            for (; j<secondSize && second.ids[j]==id; j++){
+                inSecond = true;
+                secondDate = Math.max(secondDate, second.favourites[j].getDateFavourited().getTime());
             }
-        }       
-        for(int i = 0;i<commonArray.length;i++){
-            missingArray1.remove(commonArray[i]);
-        }
 
-        //the array of favourited restaurants by customer2-common ones
-        for (int i = 0; i < favourites.length; i++) {
-            if(favourites[i].getCustomerID().equals(customer1ID)){             
-                missingArray2.add(favourites[i].getRestaurantID());
+            if ((inFirst && inSecond && inBoth) || (inFirst && !inSecond && onlyFirst) || (!inFirst && inSecond && onlySecond)){
+                ids[size] = id;
+                dates[size] = Math.max(firstDate, secondDate);
+                size++;
             }
-        }     
-        for(int i = 0;i<commonArray.length;i++){
-            missingArray2.remove(commonArray[i]);
         }
 
-        //the result is the sum of these arrays
-        Long[] result = new Long[missingArray1.size()+missingArray2.size()];
-        for(int i =0;i<missingArray1.size();i++){
-            result[i]=missingArray1.get(i);
+        //from the newest date to the oldest, then the smaller id first
+        Long[] result = new Long[size];
+        long[] resultDates = new long[size];
+        for (int k = 0;k<size;k++){
+            result[k]=ids[k];
+            resultDates[k]=dates[k];
         }
-        for(int i =missingArray1.size();i<missingArray2.size()+missingArray1.size();i++){
-            result[i]=missingArray2.get(i);
-        }
-        
+        Sorter.sortByKey(result, resultDates, true, SMALLER_ID_FIRST);
         return result;
     }
 
@@ -0,0 +1,174 @@
+package uk.ac.warwick.cs126.util;
+
+import java.nio.charset.StandardCharsets;
+
+public class FieldParser {
+
+    //powers of ten that are exact as floats
+    private static final float[] FLOAT_POWERS_OF_TEN = {
+        1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f
+    };
+
+    private FieldParser() {
+    }
+
+    /**
+     * Decodes a field as an UTF-8 String
+     * @param bytes the buffer
+     * @param start index of the first byte of the field
+     * @param end index after the last byte of the field
+     * @return the field as a String
+     */
+    public static String parseString(byte[] bytes, int start, int end) {
+        return new String(bytes, start, end - start, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Parses a field as a long without making a String
+     * Accepts the same input as Long.parseLong
+     * @param bytes the buffer
+     * @param start index of the first byte of the field
+     * @param end index after the last byte of the field
+     * @return the value of the field
+     */
+    public static long parseLong(byte[] bytes, int start, int end) {
+        if (start >= end) {
+            throw new NumberFormatException("For input string: \"\"");
+        }
+        int i = start;
+        boolean negative = false;
+        if (bytes[i] == '-' || bytes[i] == '+') {
+            negative = bytes[i] == '-';
+            i++;
+            if (i == end) {
+                throw numberFormatException(bytes, start, end);
+            }
+        }
+
+        //accumulates the value as a negative number, so Long.MIN_VALUE fits too
+        long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+        long multiplyLimit = limit / 10;
+        long result = 0;
+        for (; i < end; i++) {
+            int digit = bytes[i] - '0';
+            if (digit < 0 || digit > 9 || result < multiplyLimit) {
+                throw numberFormatException(bytes, start, end);
+            }
+            result *= 10;
+            if (result < limit + digit) {
+                throw numberFormatException(bytes, start, end);
+            }
+            result -= digit;
+        }
+        return negative ? result : -result;
+    }
+
+    /**
+     * Parses a field as an int without making a String
+     * @param bytes the buffer
+     * @param start index of the first byte of the field
+     * @param end index after the last byte of the field
+     * @return the value of the field
+     */
+    public static int parseInt(byte[] bytes, int start, int end) {
+        long result = parseLong(bytes, start, end);
+        if (result < Integer.MIN_VALUE || result > Integer.MAX_VALUE) {
+            throw numberFormatException(bytes, start, end);
+        }
+        return (int) result;
+    }
+
+    /**
+     * Parses a field as a float
+     * Plain decimals with at most 7 significant digits are parsed in place,
+     * everything else goes through Float.parseFloat so the result is always the same
+     * @param bytes the buffer
+     * @param start index of the first byte of the field
+     * @param end index after the last byte of the field
+     * @return the value of the field
+     */
+    public static float parseFloat(byte[] bytes, int start, int end) {
+        int i = start;
+        boolean negative = false;
+        if (i < end && (bytes[i] == '-' || bytes[i] == '+')) {
+            negative = bytes[i] == '-';
+            i++;
+        }
+
+        int mantissa = 0;
+        int digits = 0;
+        int fractionDigits = -1;
+        for (; i < end; i++) {
+            byte b = bytes[i];
+            if (b >= '0' && b <= '9') {
+                mantissa = mantissa * 10 + (b - '0');
+                digits++;
+                if (fractionDigits >= 0) {
+                    fractionDigits++;
+                }
+                if (mantissa >= (1 << 24)) {
+                    break;
+                }
+            }
+            else if (b == '.' && fractionDigits < 0) {
+                fractionDigits = 0;
+            }
+            else {
+                break;
+            }
+        }
+
+        //the mantissa and the power of ten are exact floats, so one division rounds correctly
+        if (i == end && digits > 0 && mantissa < (1 << 24) && fractionDigits < FLOAT_POWERS_OF_TEN.length) {
+            float result = fractionDigits > 0 ? mantissa / FLOAT_POWERS_OF_TEN[fractionDigits] : mantissa;
+            return negative ? -result : result;
+        }
+        return Float.parseFloat(new String(bytes, start, end - start, StandardCharsets.ISO_8859_1));
+    }
+
+    /**
+     * Parses a field as a boolean
+     * Same as Boolean.parseBoolean, only "true" in any case is true
+     * @param bytes the buffer
+     * @param start index of the first byte of the field
+     * @param end index after the last byte of the field
+     * @return the value of the field
+     */
+    public static boolean parseBoolean(byte[] bytes, int start, int end) {
+        if (end - start != 4) {
+            return false;
+        }
+        return (bytes[start] | 0x20) == 't' && (bytes[start + 1] | 0x20) == 'r'
+                && (bytes[start + 2] | 0x20) == 'u' && (bytes[start + 3] | 0x20) == 'e';
+    }
+
+    /**
+     * Finds the enum constant whose name is the field, without making a String
+     * Same as valueOf, but the constants are given so values() is not copied for every row
+     * @param constants the values() of the enum
+     * @param bytes the buffer
+     * @param start index of the first byte of the field
+     * @param end index after the last byte of the field
+     * @return the matching constant
+     */
+    public static <E extends Enum<E>> E parseEnum(E[] constants, byte[] bytes, int start, int end) {
+        for (int i = 0; i < constants.length; i++) {
+            String name = constants[i].name();
+            if (name.length() != end - start) {
+                continue;
+            }
+            int j = 0;
+            while (j < name.length() && name.charAt(j) == bytes[start + j]) {
+                j++;
+            }
+            if (j == name.length()) {
+                return constants[i];
+            }
+        }
+        throw new IllegalArgumentException("No enum constant " + parseString(bytes, start, end));
+    }
+
+    private static NumberFormatException numberFormatException(byte[] bytes, int start, int end) {
+        return new NumberFormatException("For input string: \"" + parseString(bytes, start, end) + "\"");
+    }
+}
@@ -17,7 +17,9 @@ public class HaversineDistanceCalculator {
         double longitude2 = Math.toRadians(lon2);
 
         //This algorithm calculates the distance in kms
-        double a = Math.pow(Math.sin((latitude1-latitude2)/2),2)+Math.cos(latitude1)*Math.cos(latitude2)*Math.pow(Math.sin((longitude2-longitude1)/2),2);
+        double sinLatitude = Math.sin((latitude1-latitude2)/2);
+        double sinLongitude = Math.sin((longitude2-longitude1)/2);
+        double a = sinLatitude*sinLatitude+Math.cos(latitude1)*Math.cos(latitude2)*(sinLongitude*sinLongitude);
         double c = 2 * Math.asin(Math.sqrt(a));
         double d = R * c;
         double e = Math.round(d * 10) / 10.0;
@@ -27,6 +29,42 @@ public class HaversineDistanceCalculator {
         return result;
     }
 
+    /**
+     * Calculates the distances in kms from one place to many places
+     * Gives the same values as calling the method above for every place,
+     * but the trigonometry of the first place is only done once
+     * @param lat1,lon1 parameters of the first place
+     * @param lats,lons parameters of the other places
+     * @param distances filled with the distances in kms
+     */
+    public static void inKilometres(float lat1, float lon1, float[] lats, float[] lons, float[] distances) {
+        inKilometres(lat1, lon1, lats, lons, lats.length, distances);
+    }
+
+    /**
+     * Calculates the distances in kms from one place to the first count places
+     * @param lat1,lon1 parameters of the first place
+     * @param lats,lons parameters of the other places
+     * @param count the number of places
+     * @param distances filled with the distances in kms
+     */
+    public static void inKilometres(float lat1, float lon1, float[] lats, float[] lons, int count, float[] distances) {
+        double latitude1 = Math.toRadians(lat1);
+        double longitude1 = Math.toRadians(lon1);
+        double cosLatitude1 = Math.cos(latitude1);
+
+        //same steps as the single distance, without branches or calls between the places
+        for (int i = 0; i < count; i++) {
+            double latitude2 = Math.toRadians(lats[i]);
+            double longitude2 = Math.toRadians(lons[i]);
+            double sinLatitude = Math.sin((latitude1-latitude2)/2);
+            double sinLongitude = Math.sin((longitude2-longitude1)/2);
+            double a = sinLatitude*sinLatitude+cosLatitude1*Math.cos(latitude2)*(sinLongitude*sinLongitude);
+            double d = R * (2 * Math.asin(Math.sqrt(a)));
+            distances[i] = (float)(Math.round(d * 10) / 10.0);
+        }
+    }
+
     /**
      * Calculates the distance in kms
      * @param lat1,lon1 parameters of the first place
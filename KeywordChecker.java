@@ -96,6 +96,26 @@ public class KeywordChecker implements IKeywordChecker {
         
     }
 
+    //the automaton of all the keywords, made once
+    private static final KeywordScanner scanner = new KeywordScanner(keywords);
+
+    /**
+     * The scanner that finds the keywords in a text
+     * The ordinals it reports are the indexes for getKeyword
+     * @return the shared scanner
+     */
+    public KeywordScanner getScanner() {
+        return scanner;
+    }
+
+    public int getKeywordCount() {
+        return keywords.length;
+    }
+
+    public String getKeyword(int ordinal) {
+        return keywords[ordinal];
+    }
+
     /**
      * Checks if the input is a keyword
      * @param word input to be checked
@@ -104,25 +124,22 @@ public class KeywordChecker implements IKeywordChecker {
     public boolean isAKeyword(String word) {
         int left = 0;
         int right = keywords.length-1;
-        int pivot = (left+right)/2;
-        int size = 0;
 
         //Performs a binary search on the keywords
-        while(size!=keywords.length) {
+        while(left<=right) {
+            int pivot = (left+right)/2;
+            int comparison = keywords[pivot].compareTo(word);
 
             //If the word and keyword matches returns true
-            if (keywords[pivot].compareTo(word)==0){
+            if (comparison==0){
                 return true;
             }
-            else if (keywords[pivot].compareTo(word)>0){
-                right=pivot;
-                pivot = (left+right)/2;
+            else if (comparison>0){
+                right=pivot-1;
             }
             else{
-                left=pivot;
-                pivot = (left+right)/2;
+                left=pivot+1;
             }
-            size++;
         }
 
         //if it can not find a keyword returns false
@@ -0,0 +1,175 @@
+package uk.ac.warwick.cs126.util;
+
+public class KeywordScanner {
+
+    //the first state of every word, and the state that never matches anything
+    private static final int START = 0;
+    private static final int DEAD = 1;
+
+    //whitespace like \s in a regex: space, \t, \n, \x0B, \f and \r
+    private static final boolean[] WHITESPACE = new boolean[128];
+
+    static {
+        WHITESPACE[' '] = true;
+        WHITESPACE['\t'] = true;
+        WHITESPACE['\n'] = true;
+        WHITESPACE[0x0B] = true;
+        WHITESPACE['\f'] = true;
+        WHITESPACE['\r'] = true;
+    }
+
+    /**
+     * Receives the keywords found by a scan
+     */
+    public interface Listener {
+
+        /**
+         * Called for every keyword in the text, in order
+         * @param ordinal the index of the keyword in the keyword array
+         * @param start index of the first char of the keyword in the text
+         * @param end index after the last char of the keyword in the text
+         */
+        void keywordFound(int ordinal, int start, int end);
+    }
+
+    //the chars that appear in keywords get a column, every other char is column 0
+    private final int[] columnOf;
+    private final int columns;
+
+    //transitions[state * columns + column] is the next state
+    private final int[] transitions;
+
+    //the keyword ordinal of each state, or -1 when the state is not the end of a keyword
+    private final int[] keywordOf;
+
+    /**
+     * Constructor method
+     * Builds an automaton that walks every char of a text once and finds the
+     * whitespace separated words that are exactly one of the keywords
+     * @param keywords the keywords, a keyword must not be empty or contain whitespace
+     */
+    public KeywordScanner(String[] keywords) {
+
+        //gives a column to every different char of the keywords
+        int largest = 0;
+        int length = 0;
+        for (int i = 0; i < keywords.length; i++) {
+            length += keywords[i].length();
+            for (int j = 0; j < keywords[i].length(); j++) {
+                largest = Math.max(largest, keywords[i].charAt(j));
+            }
+        }
+        columnOf = new int[largest + 1];
+        int columnCount = 1;
+        for (int i = 0; i < keywords.length; i++) {
+            for (int j = 0; j < keywords[i].length(); j++) {
+                char c = keywords[i].charAt(j);
+                if (columnOf[c] == 0) {
+                    columnOf[c] = columnCount++;
+                }
+            }
+        }
+        columns = columnCount;
+
+        //a trie of the keywords, the missing transitions go to the dead state
+        int stateLimit = length + 2;
+        transitions = new int[stateLimit * columns];
+        for (int i = 0; i < transitions.length; i++) {
+            transitions[i] = DEAD;
+        }
+        keywordOf = new int[stateLimit];
+        for (int i = 0; i < stateLimit; i++) {
+            keywordOf[i] = -1;
+        }
+        int stateCount = 2;
+        for (int i = 0; i < keywords.length; i++) {
+            int state = START;
+            for (int j = 0; j < keywords[i].length(); j++) {
+                int slot = state * columns + columnOf[keywords[i].charAt(j)];
+                if (transitions[slot] == DEAD) {
+                    transitions[slot] = stateCount++;
+                }
+                state = transitions[slot];
+            }
+
+            //the first of two equal keywords is kept
+            if (state != START && keywordOf[state] < 0) {
+                keywordOf[state] = i;
+            }
+        }
+    }
+
+    //the state after reading one char that is not whitespace
+    private int next(int state, char c) {
+        if (c < columnOf.length) {
+            return transitions[state * columns + columnOf[c]];
+        }
+        return DEAD;
+    }
+
+    private static boolean isWhitespace(char c) {
+        return c < 128 && WHITESPACE[c];
+    }
+
+    /**
+     * Counts the keywords in a text
+     * @param text the text to scan
+     * @param counts the count of each keyword by its ordinal is increased by the number of times it was found
+     * @return the number of keywords found
+     */
+    public int scan(CharSequence text, int[] counts) {
+        int found = 0;
+        int state = START;
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (isWhitespace(c)) {
+                if (keywordOf[state] >= 0) {
+                    counts[keywordOf[state]]++;
+                    found++;
+                }
+                state = START;
+            }
+            else {
+                state = next(state, c);
+            }
+        }
+        if (keywordOf[state] >= 0) {
+            counts[keywordOf[state]]++;
+            found++;
+        }
+        return found;
+    }
+
+    /**
+     * Finds the keywords in a text
+     * @param text the text to scan
+     * @param listener receives every keyword that was found
+     * @return the number of keywords found
+     */
+    public int scan(CharSequence text, Listener listener) {
+        int found = 0;
+        int state = START;
+        int wordStart = 0;
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (isWhitespace(c)) {
+                if (keywordOf[state] >= 0) {
+                    listener.keywordFound(keywordOf[state], wordStart, i);
+                    found++;
+                }
+                state = START;
+                wordStart = i + 1;
+            }
+            else {
+                state = next(state, c);
+            }
+        }
+        if (keywordOf[state] >= 0) {
+            listener.keywordFound(keywordOf[state], wordStart, length);
+            found++;
+        }
+        return found;
+    }
+}
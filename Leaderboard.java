@@ -0,0 +1,200 @@
+package uk.ac.warwick.cs126.structures;
+
+public class Leaderboard {
+
+    private static final int DEFAULT_SIZE = 20;
+
+    private final int defaultSize;
+
+    //the entries by their id, and as a treap ordered by their rank
+    private final LongHashMap<Node> nodes;
+    private Node root;
+    private int seed;
+
+    private static class Node {
+        final long id;
+        final long score;
+        final int priority;
+        Node left;
+        Node right;
+
+        Node(long id, long score, int priority) {
+            this.id = id;
+            this.score = score;
+            this.priority = priority;
+        }
+    }
+
+    /**
+     * Constructor method
+     * Ranks ids by their scores, the top 20 are returned by default
+     */
+    public Leaderboard() {
+        this(DEFAULT_SIZE);
+    }
+
+    /**
+     * Constructor method
+     * @param defaultSize the number of ids top() returns
+     */
+    public Leaderboard(int defaultSize) {
+        this.defaultSize = defaultSize;
+        nodes = new LongHashMap<>();
+        seed = 0x2545F491;
+    }
+
+    public int size() {
+        return nodes.size();
+    }
+
+    /**
+     * Sets the score of an id, adding it when it is new
+     * @param id the id
+     * @param score the new score
+     */
+    public void set(long id, long score) {
+        Node old = nodes.get(id);
+        if (old != null) {
+            if (old.score == score) {
+                return;
+            }
+            root = delete(root, old);
+        }
+        Node node = new Node(id, score, nextPriority());
+        nodes.put(id, node);
+        root = insert(root, node);
+    }
+
+    /**
+     * Removes an id
+     * @param id the id
+     * @return true when it was ranked
+     */
+    public boolean remove(long id) {
+        Node old = nodes.remove(id);
+        if (old == null) {
+            return false;
+        }
+        root = delete(root, old);
+        return true;
+    }
+
+    /**
+     * The ids with the highest scores, a larger id comes first when the scores are equal
+     * @return array of the default size, the missing places are null
+     */
+    public Long[] top() {
+        return top(defaultSize);
+    }
+
+    /**
+     * The ids with the highest scores, a larger id comes first when the scores are equal
+     * @param count the size of the array
+     * @return array of the ids in order, the missing places are null
+     */
+    public Long[] top(int count) {
+        Long[] result = new Long[count];
+
+        //in-order walk of the treap that stops after count nodes
+        Node[] stack = new Node[64];
+        int depth = 0;
+        int size = 0;
+        Node node = root;
+        while (size < count && (node != null || depth > 0)) {
+            while (node != null) {
+                if (depth == stack.length) {
+                    Node[] bigger = new Node[depth * 2];
+                    System.arraycopy(stack, 0, bigger, 0, depth);
+                    stack = bigger;
+                }
+                stack[depth++] = node;
+                node = node.left;
+            }
+            node = stack[--depth];
+            result[size++] = node.id;
+            node = node.right;
+        }
+        return result;
+    }
+
+    //negative when the first node ranks higher
+    private static int compare(Node node1, Node node2) {
+        if (node1.score != node2.score) {
+            return node1.score > node2.score ? -1 : 1;
+        }
+        return Long.compare(node2.id, node1.id);
+    }
+
+    private Node insert(Node parent, Node node) {
+        if (parent == null) {
+            return node;
+        }
+        if (compare(node, parent) < 0) {
+            parent.left = insert(parent.left, node);
+            if (parent.left.priority > parent.priority) {
+                return rotateRight(parent);
+            }
+        }
+        else {
+            parent.right = insert(parent.right, node);
+            if (parent.right.priority > parent.priority) {
+                return rotateLeft(parent);
+            }
+        }
+        return parent;
+    }
+
+    private Node delete(Node parent, Node node) {
+        if (parent == null) {
+            return null;
+        }
+        if (parent == node) {
+            return merge(parent.left, parent.right);
+        }
+        if (compare(node, parent) < 0) {
+            parent.left = delete(parent.left, node);
+        }
+        else {
+            parent.right = delete(parent.right, node);
+        }
+        return parent;
+    }
+
+    //joins two treaps where every node of the left one ranks higher
+    private Node merge(Node left, Node right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            return left;
+        }
+        right.left = merge(left, right.left);
+        return right;
+    }
+
+    private static Node rotateRight(Node node) {
+        Node left = node.left;
+        node.left = left.right;
+        left.right = node;
+        return left;
+    }
+
+    private static Node rotateLeft(Node node) {
+        Node right = node.right;
+        node.right = right.left;
+        right.left = node;
+        return right;
+    }
+
+    //xorshift random numbers keep the treap balanced
+    private int nextPriority() {
+        seed ^= seed << 13;
+        seed ^= seed >>> 17;
+        seed ^= seed << 5;
+        return seed;
+    }
+}
@@ -0,0 +1,140 @@
+package uk.ac.warwick.cs126.structures;
+
+public class LongBitSet {
+
+    //bit i is bit (i & 63) of word i >> 6
+    private long[] words;
+
+    /**
+     * Constructor method
+     * Uncompressed set of non-negative ints, one bit per value
+     * Meant for dense ordinals, where most words have bits in them
+     */
+    public LongBitSet() {
+        this(64);
+    }
+
+    /**
+     * Constructor method
+     * @param expectedSize the largest value plus one the set should hold without resizing
+     */
+    public LongBitSet(int expectedSize) {
+        words = new long[Math.max(1, (expectedSize + 63) >>> 6)];
+    }
+
+    private void ensureWords(int count) {
+        if (count > words.length) {
+            long[] bigger = new long[Math.max(count, words.length * 2)];
+            System.arraycopy(words, 0, bigger, 0, words.length);
+            words = bigger;
+        }
+    }
+
+    public void set(int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Negative value " + value);
+        }
+        ensureWords((value >>> 6) + 1);
+        words[value >>> 6] |= 1L << value;
+    }
+
+    public void clear(int value) {
+        if (value >= 0 && (value >>> 6) < words.length) {
+            words[value >>> 6] &= ~(1L << value);
+        }
+    }
+
+    public boolean get(int value) {
+        return value >= 0 && (value >>> 6) < words.length && (words[value >>> 6] & (1L << value)) != 0;
+    }
+
+    /**
+     * Keeps only the values that are also in the other set
+     * @param other the other set
+     */
+    public void and(LongBitSet other) {
+        int common = Math.min(words.length, other.words.length);
+        for (int i = 0; i < common; i++) {
+            words[i] &= other.words[i];
+        }
+        for (int i = common; i < words.length; i++) {
+            words[i] = 0;
+        }
+    }
+
+    /**
+     * Adds the values of the other set
+     * @param other the other set
+     */
+    public void or(LongBitSet other) {
+        ensureWords(other.words.length);
+        for (int i = 0; i < other.words.length; i++) {
+            words[i] |= other.words[i];
+        }
+    }
+
+    /**
+     * Removes the values of the other set
+     * @param other the other set
+     */
+    public void andNot(LongBitSet other) {
+        int common = Math.min(words.length, other.words.length);
+        for (int i = 0; i < common; i++) {
+            words[i] &= ~other.words[i];
+        }
+    }
+
+    public int cardinality() {
+        int cardinality = 0;
+        for (int i = 0; i < words.length; i++) {
+            cardinality += Long.bitCount(words[i]);
+        }
+        return cardinality;
+    }
+
+    /**
+     * The number of values in both sets, without making the intersection
+     * @param other the other set
+     * @return the size of the intersection
+     */
+    public int andCardinality(LongBitSet other) {
+        int common = Math.min(words.length, other.words.length);
+        int cardinality = 0;
+        for (int i = 0; i < common; i++) {
+            cardinality += Long.bitCount(words[i] & other.words[i]);
+        }
+        return cardinality;
+    }
+
+    /**
+     * The smallest value that is at least from
+     * @param from the value to start at
+     * @return the value, or -1 when there is none
+     */
+    public int nextSetBit(int from) {
+        if (from < 0) {
+            from = 0;
+        }
+        int index = from >>> 6;
+        if (index >= words.length) {
+            return -1;
+        }
+        long word = words[index] & (-1L << from);
+        while (true) {
+            if (word != 0) {
+                return (index << 6) + Long.numberOfTrailingZeros(word);
+            }
+            index++;
+            if (index == words.length) {
+                return -1;
+            }
+            word = words[index];
+        }
+    }
+
+    public LongBitSet copy() {
+        LongBitSet copy = new LongBitSet();
+        copy.words = words.clone();
+        return copy;
+    }
+}
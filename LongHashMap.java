@@ -0,0 +1,168 @@
+package uk.ac.warwick.cs126.structures;
+
+public class LongHashMap<V> {
+
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private long[] keys;
+    private Object[] values;
+    private boolean[] used;
+    private int size;
+    private int threshold;
+
+    /**
+     * Constructor method
+     * Open addressing table with linear probing, the keys are stored as primitive longs
+     */
+    public LongHashMap() {
+        this(16);
+    }
+
+    /**
+     * Constructor method
+     * @param expectedSize number of keys the map should hold without resizing
+     */
+    public LongHashMap(int expectedSize) {
+        int capacity = 16;
+        while (capacity * LOAD_FACTOR < expectedSize) {
+            capacity <<= 1;
+        }
+        allocate(capacity);
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new Object[capacity];
+        used = new boolean[capacity];
+        threshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    //spreads the bits of the key so that sequential IDs do not cluster
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    //returns the slot of the key or the empty slot where it would go
+    private int slot(long key) {
+        int mask = keys.length - 1;
+        int i = hash(key) & mask;
+        while (used[i] && keys[i] != key) {
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    /**
+     * Adds a key-value pair, replacing the value when the key is already present
+     * @param key the key
+     * @param value the value
+     * @return the previous value or null
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        int i = slot(key);
+        if (used[i]) {
+            V old = (V) values[i];
+            values[i] = value;
+            return old;
+        }
+        used[i] = true;
+        keys[i] = key;
+        values[i] = value;
+        if (++size > threshold) {
+            resize();
+        }
+        return null;
+    }
+
+    /**
+     * Gets the value of a key
+     * @param key the key
+     * @return the value or null when the key is not present
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        int i = slot(key);
+        return used[i] ? (V) values[i] : null;
+    }
+
+    /**
+     * Checks if the key is in the map
+     * @param key the key
+     * @return true when present, false when not
+     */
+    public boolean containsKey(long key) {
+        return used[slot(key)];
+    }
+
+    /**
+     * Removes a key from the map
+     * @param key the key
+     * @return the removed value or null
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        int i = slot(key);
+        if (!used[i]) {
+            return null;
+        }
+        V old = (V) values[i];
+        used[i] = false;
+        values[i] = null;
+        size--;
+
+        //shifts back the entries of the probe chain so that lookups do not stop early
+        int mask = keys.length - 1;
+        int gap = i;
+        int j = (i + 1) & mask;
+        while (used[j]) {
+            int home = hash(keys[j]) & mask;
+            if (((j - home) & mask) >= ((j - gap) & mask)) {
+                keys[gap] = keys[j];
+                values[gap] = values[j];
+                used[gap] = true;
+                used[j] = false;
+                values[j] = null;
+                gap = j;
+            }
+            j = (j + 1) & mask;
+        }
+        return old;
+    }
+
+    /**
+     * Removes every key
+     */
+    public void clear() {
+        for (int i = 0; i < used.length; i++) {
+            used[i] = false;
+            values[i] = null;
+        }
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    //doubles the table and reinserts every entry
+    private void resize() {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        boolean[] oldUsed = used;
+        allocate(oldKeys.length << 1);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldUsed[i]) {
+                int j = slot(oldKeys[i]);
+                used[j] = true;
+                keys[j] = oldKeys[i];
+                values[j] = oldValues[i];
+            }
+        }
+    }
+}
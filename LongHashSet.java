@@ -0,0 +1,157 @@
+package uk.ac.warwick.cs126.structures;
+
+public class LongHashSet {
+
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private long[] keys;
+    private boolean[] used;
+    private int size;
+    private int threshold;
+
+    /**
+     * Constructor method
+     * Open addressing set with linear probing, the keys are stored as primitive longs
+     */
+    public LongHashSet() {
+        this(16);
+    }
+
+    /**
+     * Constructor method
+     * @param expectedSize number of keys the set should hold without resizing
+     */
+    public LongHashSet(int expectedSize) {
+        int capacity = 16;
+        while (capacity * LOAD_FACTOR < expectedSize) {
+            capacity <<= 1;
+        }
+        allocate(capacity);
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        used = new boolean[capacity];
+        threshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    //spreads the bits of the key so that sequential IDs do not cluster
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    //returns the slot of the key or the empty slot where it would go
+    private int slot(long key) {
+        int mask = keys.length - 1;
+        int i = hash(key) & mask;
+        while (used[i] && keys[i] != key) {
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    /**
+     * Adds a key to the set
+     * @param key the key to be added
+     * @return true when added, false when it was already present
+     */
+    public boolean add(long key) {
+        int i = slot(key);
+        if (used[i]) {
+            return false;
+        }
+        used[i] = true;
+        keys[i] = key;
+        if (++size > threshold) {
+            resize();
+        }
+        return true;
+    }
+
+    /**
+     * Checks if the key is in the set
+     * @param key the key
+     * @return true when present, false when not
+     */
+    public boolean contains(long key) {
+        return used[slot(key)];
+    }
+
+    /**
+     * Removes a key from the set
+     * @param key the key
+     * @return true when removed, false when it was not present
+     */
+    public boolean remove(long key) {
+        int i = slot(key);
+        if (!used[i]) {
+            return false;
+        }
+        used[i] = false;
+        size--;
+
+        //shifts back the entries of the probe chain so that lookups do not stop early
+        int mask = keys.length - 1;
+        int gap = i;
+        int j = (i + 1) & mask;
+        while (used[j]) {
+            int home = hash(keys[j]) & mask;
+            if (((j - home) & mask) >= ((j - gap) & mask)) {
+                keys[gap] = keys[j];
+                used[gap] = true;
+                used[j] = false;
+                gap = j;
+            }
+            j = (j + 1) & mask;
+        }
+        return true;
+    }
+
+    /**
+     * Removes every key
+     */
+    public void clear() {
+        for (int i = 0; i < used.length; i++) {
+            used[i] = false;
+        }
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * The keys in no particular order
+     * @return array of every key
+     */
+    public long[] toArray() {
+        long[] result = new long[size];
+        int count = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (used[i]) {
+                result[count++] = keys[i];
+            }
+        }
+        return result;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    //doubles the table and reinserts every key
+    private void resize() {
+        long[] oldKeys = keys;
+        boolean[] oldUsed = used;
+        allocate(oldKeys.length << 1);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldUsed[i]) {
+                int j = slot(oldKeys[i]);
+                used[j] = true;
+                keys[j] = oldKeys[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package uk.ac.warwick.cs126.structures;
+
+public class LongOrdinals {
+
+    //the ordinal of each id, and the id of each ordinal
+    private final LongHashMap<Integer> ordinals;
+    private long[] ids;
+    private int size;
+
+    /**
+     * Constructor method
+     * Gives every id a dense ordinal 0, 1, 2... in the order they are first seen
+     * The ordinals are never reused, so they can be kept in bitmaps
+     */
+    public LongOrdinals() {
+        ordinals = new LongHashMap<>();
+        ids = new long[16];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * The ordinal of an id, a new one is given when the id is new
+     * @param id the id
+     * @return the ordinal
+     */
+    public int ordinalOf(long id) {
+        Integer ordinal = ordinals.get(id);
+        if (ordinal != null) {
+            return ordinal;
+        }
+        if (size == ids.length) {
+            long[] bigger = new long[size * 2];
+            System.arraycopy(ids, 0, bigger, 0, size);
+            ids = bigger;
+        }
+        ids[size] = id;
+        ordinals.put(id, size);
+        return size++;
+    }
+
+    /**
+     * The ordinal of an id without giving a new one
+     * @param id the id
+     * @return the ordinal, or -1 when the id has none
+     */
+    public int find(long id) {
+        Integer ordinal = ordinals.get(id);
+        return ordinal == null ? -1 : ordinal;
+    }
+
+    public long idOf(int ordinal) {
+        if (ordinal < 0 || ordinal >= size) {
+            throw new IndexOutOfBoundsException("Ordinal " + ordinal + " of " + size);
+        }
+        return ids[ordinal];
+    }
+}
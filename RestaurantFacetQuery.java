@@ -0,0 +1,112 @@
+package uk.ac.warwick.cs126.stores;
+
+import uk.ac.warwick.cs126.models.Cuisine;
+import uk.ac.warwick.cs126.models.EstablishmentType;
+import uk.ac.warwick.cs126.models.PriceRange;
+
+public class RestaurantFacetQuery {
+
+    //the six boolean options of a restaurant
+    public enum Option { Vegetarian, Vegan, GlutenFree, NutFree, LactoseFree, Halal }
+
+    //the selected values of each facet, by the ordinals of the enums
+    //values of the same facet are joined with OR, the facets and the options with AND
+    final boolean[] cuisines;
+    final boolean[] establishmentTypes;
+    final boolean[] priceRanges;
+    final boolean[] options;
+
+    /**
+     * Constructor method
+     * A query with nothing selected matches every restaurant
+     */
+    public RestaurantFacetQuery() {
+        cuisines = new boolean[Cuisine.values().length];
+        establishmentTypes = new boolean[EstablishmentType.values().length];
+        priceRanges = new boolean[PriceRange.values().length];
+        options = new boolean[Option.values().length];
+    }
+
+    /**
+     * Keeps the restaurants with this cuisine or with one of the other selected cuisines
+     * @param cuisine the cuisine
+     * @return this query
+     */
+    public RestaurantFacetQuery addCuisine(Cuisine cuisine) {
+        cuisines[cuisine.ordinal()] = true;
+        return this;
+    }
+
+    /**
+     * Keeps the restaurants with this type or with one of the other selected types
+     * @param establishmentType the type
+     * @return this query
+     */
+    public RestaurantFacetQuery addEstablishmentType(EstablishmentType establishmentType) {
+        establishmentTypes[establishmentType.ordinal()] = true;
+        return this;
+    }
+
+    /**
+     * Keeps the restaurants with this price range or with one of the other selected price ranges
+     * @param priceRange the price range
+     * @return this query
+     */
+    public RestaurantFacetQuery addPriceRange(PriceRange priceRange) {
+        priceRanges[priceRange.ordinal()] = true;
+        return this;
+    }
+
+    /**
+     * Keeps only the restaurants that have the option
+     * @param option the option
+     * @return this query
+     */
+    public RestaurantFacetQuery requireOption(Option option) {
+        options[option.ordinal()] = true;
+        return this;
+    }
+
+    /**
+     * The number of restaurants with each facet value
+     * A cuisine, type or price range is counted among the restaurants that match the other facets of the query,
+     * so the values that are not selected show how many restaurants adding them would give
+     * The options are counted among the restaurants that match the whole query
+     */
+    public static class Counts {
+        private final int total;
+        private final int[] cuisines;
+        private final int[] establishmentTypes;
+        private final int[] priceRanges;
+        private final int[] options;
+
+        Counts(int total, int[] cuisines, int[] establishmentTypes, int[] priceRanges, int[] options) {
+            this.total = total;
+            this.cuisines = cuisines;
+            this.establishmentTypes = establishmentTypes;
+            this.priceRanges = priceRanges;
+            this.options = options;
+        }
+
+        //the number of restaurants the query matches
+        public int getTotal() {
+            return total;
+        }
+
+        public int getCount(Cuisine cuisine) {
+            return cuisines[cuisine.ordinal()];
+        }
+
+        public int getCount(EstablishmentType establishmentType) {
+            return establishmentTypes[establishmentType.ordinal()];
+        }
+
+        public int getCount(PriceRange priceRange) {
+            return priceRanges[priceRange.ordinal()];
+        }
+
+        public int getCount(Option option) {
+            return options[option.ordinal()];
+        }
+    }
+}
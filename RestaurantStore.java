@@ -7,113 +7,338 @@ import uk.ac.warwick.cs126.models.Place;
 import uk.ac.warwick.cs126.models.PriceRange;
 import uk.ac.warwick.cs126.models.Restaurant;
 import uk.ac.warwick.cs126.models.RestaurantDistance;
-import java.util.regex.Pattern;
 
 import java.io.*;
-import java.nio.charset.StandardCharsets;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.text.ParseException;
-import java.text.SimpleDateFormat;
-
-import org.apache.commons.io.IOUtils;
+import java.util.Comparator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
+import uk.ac.warwick.cs126.structures.Blacklist;
+import uk.ac.warwick.cs126.structures.LongBitSet;
+import uk.ac.warwick.cs126.structures.LongOrdinals;
 import uk.ac.warwick.cs126.structures.MyArrayList;
+import uk.ac.warwick.cs126.structures.SortedView;
+import uk.ac.warwick.cs126.structures.SpatialGrid;
+import uk.ac.warwick.cs126.structures.TrigramIndex;
 
+import uk.ac.warwick.cs126.util.ByteBufferInputStream;
 import uk.ac.warwick.cs126.util.ConvertToPlace;
 import uk.ac.warwick.cs126.util.HaversineDistanceCalculator;
+import uk.ac.warwick.cs126.util.Sorter;
 import uk.ac.warwick.cs126.util.DataChecker;
+import uk.ac.warwick.cs126.util.DelimitedReader;
 import uk.ac.warwick.cs126.util.StringFormatter;
+import uk.ac.warwick.cs126.util.TimestampParser;
+import uk.ac.warwick.cs126.util.TopK;
 
 public class RestaurantStore implements IRestaurantStore {
 
+    //the enum constants, values() makes a new copy on every call
+    private static final Cuisine[] CUISINES = Cuisine.values();
+    private static final EstablishmentType[] ESTABLISHMENT_TYPES = EstablishmentType.values();
+    private static final PriceRange[] PRICE_RANGES = PriceRange.values();
+    private static final RestaurantFacetQuery.Option[] OPTIONS = RestaurantFacetQuery.Option.values();
+
+    //the DataChecker only allows 0 to 3 Warwick stars
+    private static final int MAX_WARWICK_STARS = 3;
+
+    //the facet matchingRows can leave out, for the counts of that facet
+    private static final int ALL_FACETS = -1;
+    private static final int CUISINE_FACET = 0;
+    private static final int ESTABLISHMENT_TYPE_FACET = 1;
+    private static final int PRICE_RANGE_FACET = 2;
+
+    //the number of distances calculated at once by the paged distance listing
+    private static final int DISTANCE_BLOCK = 1024;
+
+    //limits for the size of the memory-mapped parts of a file
+    private static final long MIN_CHUNK_SIZE = 1L << 20;
+    private static final long MAX_CHUNK_SIZE = 1L << 30;
+
+    //orders of the restaurants, the sorts use them after their own keys
+    private static final Comparator<Restaurant> BY_NAME = new Comparator<Restaurant>() {
+        public int compare(Restaurant restaurant1, Restaurant restaurant2) {
+            return restaurant1.getName().compareTo(restaurant2.getName());
+        }
+    };
+    private static final Comparator<Restaurant> BY_ID = new Comparator<Restaurant>() {
+        public int compare(Restaurant restaurant1, Restaurant restaurant2) {
+            return restaurant1.getID().compareTo(restaurant2.getID());
+        }
+    };
+    private static final Comparator<Restaurant> BY_NAME_THEN_ID = Sorter.thenComparing(BY_NAME, BY_ID);
+    private static final Comparator<Restaurant> BY_DATE = new Comparator<Restaurant>() {
+        public int compare(Restaurant restaurant1, Restaurant restaurant2) {
+            return Long.compare(restaurant1.getDateEstablished().getTime(), restaurant2.getDateEstablished().getTime());
+        }
+    };
+
     private MyArrayList<Restaurant> restaurantArray;
+    private SpatialGrid<Restaurant> restaurantGrid;
+    private TrigramIndex<Restaurant> restaurantNames;
+    private SortedView<Restaurant> restaurantsByName;
+    private SortedView<Restaurant> restaurantsByDate;
+    private SortedView<Restaurant>[] restaurantsByStars;
+    private LongOrdinals restaurantRows;
+    private Restaurant[] rowRestaurants;
+    private LongBitSet liveRows;
+    private LongBitSet[] cuisineRows;
+    private LongBitSet[] establishmentTypeRows;
+    private LongBitSet[] priceRangeRows;
+    private LongBitSet[] optionRows;
     private DataChecker dataChecker;
-    private MyArrayList<Long> blackList;
+    private Blacklist blackList;
     private HaversineDistanceCalculator distanceCalc;
     private StringFormatter stringFormatter;
 
     /**
      * Constructor method
      * @param restaurantArray array that contains the restaurants
+     * @param restaurantGrid spatial index of the restaurants by their coordinates
+     * @param restaurantNames substring index of the normalised restaurant names
+     * @param restaurantsByName the restaurants in the order of getRestaurantsByName
+     * @param restaurantsByDate the restaurants in the order of getRestaurantsByDateEstablished
+     * @param restaurantsByStars the restaurants of each Warwick star level in the order of their names
+     * @param restaurantRows row ordinal of each restaurant id, for the facet bitsets
+     * @param rowRestaurants the restaurant of each row, null after it is evicted
+     * @param liveRows the rows of the restaurants in the store
+     * @param cuisineRows,establishmentTypeRows,priceRangeRows the rows of each value of the facets
+     * @param optionRows the rows of the restaurants with each option
      * @param dataChecked object for the metods in the DataChecker class
-     * @param blackList array that contains the blacklisted items
+     * @param blackList hash set that contains the blacklisted IDs
      * @param distanceCalc object for the methods in the HaversineDistanceCalculator class
      * @param stringFormatter object for the methods in the StringFormatter class
      */
+    @SuppressWarnings("unchecked")
     public RestaurantStore() {
 
         restaurantArray = new MyArrayList<>();
+        restaurantGrid = new SpatialGrid<>();
+        restaurantNames = new TrigramIndex<>();
+        restaurantsByName = new SortedView<>(BY_NAME_THEN_ID);
+        restaurantsByDate = new SortedView<>(Sorter.thenComparing(BY_DATE, BY_NAME_THEN_ID));
+        restaurantsByStars = (SortedView<Restaurant>[]) new SortedView<?>[MAX_WARWICK_STARS+1];
+        for(int stars = 0;stars<=MAX_WARWICK_STARS;stars++){
+            restaurantsByStars[stars] = new SortedView<>(BY_NAME_THEN_ID);
+        }
+        restaurantRows = new LongOrdinals();
+        rowRestaurants = new Restaurant[16];
+        liveRows = new LongBitSet();
+        cuisineRows = newBitSets(CUISINES.length);
+        establishmentTypeRows = newBitSets(ESTABLISHMENT_TYPES.length);
+        priceRangeRows = newBitSets(PRICE_RANGES.length);
+        optionRows = newBitSets(OPTIONS.length);
         dataChecker = new DataChecker();
-        blackList = new MyArrayList<>();
+        blackList = new Blacklist();
         distanceCalc = new HaversineDistanceCalculator();
         stringFormatter = new StringFormatter();
     }
 
+    /**
+     * Loads the restaurants from a csv stream
+     * @param resource the csv data, the first row is the header
+     * @return array of the loaded restaurants
+     */
     public Restaurant[] loadRestaurantDataToArray(InputStream resource) {
         Restaurant[] restaurantArray = new Restaurant[0];
 
         try {
-            byte[] inputStreamBytes = IOUtils.toByteArray(resource);
-            BufferedReader lineReader = new BufferedReader(new InputStreamReader(
-                    new ByteArrayInputStream(inputStreamBytes), StandardCharsets.UTF_8));
-
-            int lineCount = 0;
-            String line;
-            while ((line = lineReader.readLine()) != null) {
-                if (!("".equals(line))) {
-                    lineCount++;
-                }
-            }
-            lineReader.close();
+            DelimitedReader csvReader = new DelimitedReader(resource, ',');
+
+            //skips the header
+            csvReader.nextRow();
+            restaurantArray = parseRestaurants(csvReader);
+            csvReader.close();
 
-            Restaurant[] loadedRestaurants = new Restaurant[lineCount - 1];
+        } catch (IOException | ParseException e) {
+            e.printStackTrace();
+        }
 
-            BufferedReader csvReader = new BufferedReader(new InputStreamReader(
-                    new ByteArrayInputStream(inputStreamBytes), StandardCharsets.UTF_8));
+        return restaurantArray;
+    }
+
+    /**
+     * Loads the restaurants from a csv file using every core
+     * The file is memory-mapped and split at line boundaries,
+     * the parts are parsed in parallel and joined in the order of the file
+     * @param file the csv file, the first row is the header
+     * @return array of the loaded restaurants
+     */
+    public Restaurant[] loadRestaurantDataToArray(File file) {
+        Restaurant[] restaurantArray = new Restaurant[0];
 
-            String row;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+
+            //a few parts for every core so that a slow part does not hold up the others
+            int parallelism = ForkJoinPool.commonPool().getParallelism();
+            long chunkSize = Math.max(MIN_CHUNK_SIZE, size / (parallelism * 4L) + 1);
+            chunkSize = Math.min(chunkSize, MAX_CHUNK_SIZE);
+
+            //moves every boundary to the start of the next line
+            int chunkCount = (int) ((size + chunkSize - 1) / chunkSize);
+            long[] boundaries = new long[chunkCount + 1];
+            boundaries[0] = 0;
+            for (int i = 1; i < chunkCount; i++) {
+                boundaries[i] = nextLineStart(channel, Math.max(i * chunkSize, boundaries[i - 1]), size);
+            }
+            boundaries[chunkCount] = size;
+
+            //parses the parts on the fork/join pool
+            ChunkParser[] tasks = new ChunkParser[chunkCount];
+            for (int i = 0; i < chunkCount; i++) {
+                MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, boundaries[i], boundaries[i + 1] - boundaries[i]);
+                tasks[i] = new ChunkParser(mapped, i == 0);
+                ForkJoinPool.commonPool().execute(tasks[i]);
+            }
+
+            //joins the parts in the order of the file
+            Restaurant[][] parts = new Restaurant[chunkCount][];
+            int total = 0;
+            for (int i = 0; i < chunkCount; i++) {
+                parts[i] = tasks[i].join();
+                total += parts[i].length;
+            }
+            Restaurant[] loadedRestaurants = new Restaurant[total];
             int restaurantCount = 0;
-            SimpleDateFormat formatter = new SimpleDateFormat("yyyy-MM-dd hh:mm:ss");
-
-            csvReader.readLine();
-            while ((row = csvReader.readLine()) != null) {
-                if (!("".equals(row))) {
-                    String[] data = row.split(",");
-
-                    Restaurant restaurant = new Restaurant(
-                            data[0],
-                            data[1],
-                            data[2],
-                            data[3],
-                            Cuisine.valueOf(data[4]),
-                            EstablishmentType.valueOf(data[5]),
-                            PriceRange.valueOf(data[6]),
-                            formatter.parse(data[7]),
-                            Float.parseFloat(data[8]),
-                            Float.parseFloat(data[9]),
-                            Boolean.parseBoolean(data[10]),
-                            Boolean.parseBoolean(data[11]),
-                            Boolean.parseBoolean(data[12]),
-                            Boolean.parseBoolean(data[13]),
-                            Boolean.parseBoolean(data[14]),
-                            Boolean.parseBoolean(data[15]),
-                            formatter.parse(data[16]),
-                            Integer.parseInt(data[17]),
-                            Integer.parseInt(data[18]));
-
-                    loadedRestaurants[restaurantCount++] = restaurant;
-                }
+            for (int i = 0; i < chunkCount; i++) {
+                System.arraycopy(parts[i], 0, loadedRestaurants, restaurantCount, parts[i].length);
+                restaurantCount += parts[i].length;
             }
-            csvReader.close();
 
             restaurantArray = loadedRestaurants;
 
-        } catch (IOException | ParseException e) {
+        } catch (IOException e) {
             e.printStackTrace();
+        } catch (UncheckedIOException | IllegalArgumentException e) {
+
+            //a part that could not be read or parsed is reported like the stream loader does,
+            //any other failure of a part is thrown again
+            Exception cause = findCause(e, IOException.class);
+            if (cause == null) {
+                cause = findCause(e, ParseException.class);
+            }
+            if (cause == null) {
+                throw e;
+            }
+            cause.printStackTrace();
         }
 
         return restaurantArray;
     }
 
+    //join throws the exception of a part again, sometimes wrapped in a copy made for the joining thread
+    private static <T extends Throwable> T findCause(Throwable thrown, Class<T> type) {
+        for (Throwable cause = thrown; cause != null; cause = cause.getCause()) {
+            if (type.isInstance(cause)) {
+                return type.cast(cause);
+            }
+        }
+        return null;
+    }
+
+    //finds the first byte after the next new line, at or after the given position
+    private static long nextLineStart(FileChannel channel, long position, long size) throws IOException {
+        ByteBuffer window = ByteBuffer.allocate(4096);
+        long offset = position;
+        while (offset < size) {
+            window.clear();
+            int read = channel.read(window, offset);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (window.get(i) == '\n') {
+                    return offset + i + 1;
+                }
+            }
+            offset += read;
+        }
+        return size;
+    }
+
+    /**
+     * Parses one memory-mapped part of a restaurant file
+     * Every part has its own reader and timestamp parser, so they can run at the same time
+     */
+    private static class ChunkParser extends RecursiveTask<Restaurant[]> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final MappedByteBuffer mapped;
+        private final boolean hasHeader;
+
+        ChunkParser(MappedByteBuffer mapped, boolean hasHeader) {
+            this.mapped = mapped;
+            this.hasHeader = hasHeader;
+        }
+
+        protected Restaurant[] compute() {
+            try {
+                DelimitedReader csvReader = new DelimitedReader(new ByteBufferInputStream(mapped), ',');
+                if (hasHeader) {
+                    csvReader.nextRow();
+                }
+                return parseRestaurants(csvReader);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } catch (ParseException e) {
+                throw new IllegalArgumentException(e);
+            }
+        }
+    }
+
+    /**
+     * Parses every remaining row of the reader
+     * @param csvReader the reader of the restaurant rows
+     * @return array of the parsed restaurants
+     */
+    private static Restaurant[] parseRestaurants(DelimitedReader csvReader) throws IOException, ParseException {
+        Restaurant[] loadedRestaurants = new Restaurant[1024];
+        int restaurantCount = 0;
+        TimestampParser timestampParser = new TimestampParser();
+
+        while (csvReader.nextRow()) {
+            Restaurant restaurant = new Restaurant(
+                    csvReader.getString(0),
+                    csvReader.getString(1),
+                    csvReader.getString(2),
+                    csvReader.getString(3),
+                    csvReader.getEnum(4, CUISINES),
+                    csvReader.getEnum(5, ESTABLISHMENT_TYPES),
+                    csvReader.getEnum(6, PRICE_RANGES),
+                    csvReader.getDate(7, timestampParser),
+                    csvReader.getFloat(8),
+                    csvReader.getFloat(9),
+                    csvReader.getBoolean(10),
+                    csvReader.getBoolean(11),
+                    csvReader.getBoolean(12),
+                    csvReader.getBoolean(13),
+                    csvReader.getBoolean(14),
+                    csvReader.getBoolean(15),
+                    csvReader.getDate(16, timestampParser),
+                    csvReader.getInt(17),
+                    csvReader.getInt(18));
+
+            //doubles the array when it is full
+            if (restaurantCount == loadedRestaurants.length) {
+                Restaurant[] bigger = new Restaurant[restaurantCount * 2];
+                System.arraycopy(loadedRestaurants, 0, bigger, 0, restaurantCount);
+                loadedRestaurants = bigger;
+            }
+            loadedRestaurants[restaurantCount++] = restaurant;
+        }
+
+        Restaurant[] result = new Restaurant[restaurantCount];
+        System.arraycopy(loadedRestaurants, 0, result, 0, restaurantCount);
+        return result;
+    }
+
     /**
      * Adds one restaurant to the array
      * @param restaurant restaurant to be added
@@ -132,43 +357,140 @@ public class RestaurantStore implements IRestaurantStore {
         //checks if the resaturants is valid with the DataChecker class
         if(!dataChecker.isValid(restaurant)){return false;}
 
-        Restaurant tmp;
+        //binary search for the id in the array sorted by id
+        int index = indexOfID(trueID);
 
         //checks if there is a restaurant with the same id in the array
         // if yes, removes that restaurant+blacklists the id
-        for(int i = 0; i<restaurantArray.size();i++){
-            tmp = restaurantArray.get(i);
-            if (tmp.getID().equals(restaurant.getID())){
-                restaurantArray.remove(tmp);
-                blackList.add(restaurant.getID());
-                return false;
-            }
+        if (index>=0){
+            Restaurant evicted = restaurantArray.get(index);
+            restaurantArray.remove(evicted);
+            restaurantGrid.remove(evicted, evicted.getLatitude(), evicted.getLongitude());
+            restaurantNames.remove(trueID);
+            removeFromOrders(evicted);
+            removeFromFacets(evicted);
+            blackList.add(trueID);
+            return false;
         }
 
         //checks if the id is blacklisted
-        for(int i = 0;i<blackList.size();i++){
-            if(restaurant.getID().equals(blackList.get(i))){
-                return false;
-            }
+        if (blackList.contains(trueID)){
+            return false;
         }
 
-        //if the array is empty, adds the restaurant
-        if (restaurantArray.isEmpty()==true){    
-            return restaurantArray.add(restaurant);      
+        restaurantGrid.add(restaurant, restaurant.getLatitude(), restaurant.getLongitude());
+        restaurantNames.add(trueID, restaurant, normaliseName(restaurant.getName()));
+        addToOrders(restaurant);
+        addToFacets(restaurant);
+
+        //the restaurant goes where the binary search stopped
+        //only the restaurants with a larger id are shifted by one
+        int position = -(index+1);
+        int size = restaurantArray.size();
+        if (position==size){
+            return restaurantArray.add(restaurant);
         }
+        restaurantArray.add(restaurantArray.get(size-1));
+        for (int i = size-1; i>position; i--){
+            restaurantArray.set(i,restaurantArray.get(i-1));
+        }
+        restaurantArray.set(position,restaurant);
+
+        //returns true if it succesfully adds a restaurant
+        return true;
+    }
+
+    //the sorted orders are kept up to date, so reading them is only a copy
+    private void addToOrders(Restaurant restaurant) {
+        restaurantsByName.add(restaurant);
+        restaurantsByDate.add(restaurant);
+        restaurantsByStars[restaurant.getWarwickStars()].add(restaurant);
+    }
 
-        //adds the restaurant in ascending order of their id
-        Restaurant temp;
-        for (int i = 0; i<restaurantArray.size(); i++){
-            temp = restaurantArray.get(i);
-            if (temp.getID().compareTo(restaurant.getID())>=0){            
-                restaurantArray.set(i,restaurant);
-                restaurant = temp;
+    private void removeFromOrders(Restaurant restaurant) {
+        restaurantsByName.remove(restaurant);
+        restaurantsByDate.remove(restaurant);
+        restaurantsByStars[restaurant.getWarwickStars()].remove(restaurant);
+    }
+
+    private static LongBitSet[] newBitSets(int count) {
+        LongBitSet[] bitSets = new LongBitSet[count];
+        for(int i = 0;i<count;i++){
+            bitSets[i] = new LongBitSet();
+        }
+        return bitSets;
+    }
+
+    //each restaurant gets a row, its bit is set in the bitset of every facet value it has
+    private void addToFacets(Restaurant restaurant) {
+        int row = restaurantRows.ordinalOf(restaurant.getID());
+        if (row==rowRestaurants.length){
+            Restaurant[] bigger = new Restaurant[row*2];
+            System.arraycopy(rowRestaurants, 0, bigger, 0, row);
+            rowRestaurants = bigger;
+        }
+        rowRestaurants[row] = restaurant;
+        liveRows.set(row);
+        cuisineRows[restaurant.getCuisine().ordinal()].set(row);
+        establishmentTypeRows[restaurant.getEstablishmentType().ordinal()].set(row);
+        priceRangeRows[restaurant.getPriceRange().ordinal()].set(row);
+        for(int i = 0;i<OPTIONS.length;i++){
+            if (hasOption(restaurant, OPTIONS[i])){
+                optionRows[i].set(row);
             }
         }
+    }
 
-        //returns true if it succesfully adds a restaurant
-        return restaurantArray.add(restaurant);      
+    //the evicted id is blacklisted, so its row is never used again
+    private void removeFromFacets(Restaurant restaurant) {
+        int row = restaurantRows.find(restaurant.getID());
+        if (row<0){
+            return;
+        }
+        rowRestaurants[row] = null;
+        liveRows.clear(row);
+        cuisineRows[restaurant.getCuisine().ordinal()].clear(row);
+        establishmentTypeRows[restaurant.getEstablishmentType().ordinal()].clear(row);
+        priceRangeRows[restaurant.getPriceRange().ordinal()].clear(row);
+        for(int i = 0;i<OPTIONS.length;i++){
+            optionRows[i].clear(row);
+        }
+    }
+
+    private static boolean hasOption(Restaurant restaurant, RestaurantFacetQuery.Option option) {
+        switch (option){
+            case Vegetarian: return restaurant.getVegetarianOptions();
+            case Vegan: return restaurant.getVeganOptions();
+            case GlutenFree: return restaurant.getGlutenFreeOptions();
+            case NutFree: return restaurant.getNutFreeOptions();
+            case LactoseFree: return restaurant.getLactoseFreeOptions();
+            default: return restaurant.getHalalOptions();
+        }
+    }
+
+    /**
+     * Binary search for an id in the restaurant array
+     * The array is kept in ascending order of the IDs
+     * @param id the id to search for
+     * @return the index of the restaurant, or -(insertion point)-1 when there is no such restaurant
+     */
+    private int indexOfID(long id) {
+        int left = 0;
+        int right = restaurantArray.size()-1;
+        while (left<=right){
+            int middle = (left+right)>>>1;
+            long middleID = restaurantArray.get(middle).getID();
+            if (middleID<id){
+                left = middle+1;
+            }
+            else if (middleID>id){
+                right = middle-1;
+            }
+            else{
+                return middle;
+            }
+        }
+        return -(left+1);
     }
 
     /**
@@ -194,16 +516,16 @@ public class RestaurantStore implements IRestaurantStore {
      * @param id input id of the restaurant
      */
     public Restaurant getRestaurant(Long id) {
-        Restaurant tmp=null;
+        if (id==null){
+            return null;
+        }
 
-        //linear search through the reaturants
-        for(int i = 0; i<restaurantArray.size();i++){
-            tmp=restaurantArray.get(i);
-            if(tmp.getID().equals(id)){ 
-                return tmp;
-            }
+        //binary search through the restaurants, they are sorted by id
+        int index = indexOfID(id);
+        if (index<0){
+            return null;
         }
-        return null;
+        return restaurantArray.get(index);
     }
 
     /**
@@ -227,25 +549,14 @@ public class RestaurantStore implements IRestaurantStore {
      * @return a sorted array of the same restaurants
      */
     public Restaurant[] getRestaurants(Restaurant[] restaurants) {
-        Restaurant[] allRestaurants = new Restaurant[restaurants.length];
-        int size = 0;
-        Restaurant tempRestaurant;
-
-        //each elements goes through the array
-        for(int j=0 ;j<restaurants.length;j++){
-            for (int i = 0; i<size; i++){
+        Restaurant[] allRestaurants = restaurants.clone();
 
-                //they switch places when the element is smaller
-                if (allRestaurants[i].getID().compareTo(restaurants[j].getID())>=0){
-                    tempRestaurant = allRestaurants[i];
-                    allRestaurants[i]=restaurants[j];
-                    restaurants[j] = tempRestaurant;
-                }
-            }
-            //the largest element gets added in the end
-            allRestaurants[size]=restaurants[j];
-            size++;
+        //the ids are compared as primitive keys
+        long[] ids = new long[allRestaurants.length];
+        for(int i = 0;i<allRestaurants.length;i++){
+            ids[i]=allRestaurants[i].getID();
         }
+        Sorter.sortByKey(allRestaurants, ids, false, null);
 
         return allRestaurants;
     }
@@ -255,54 +566,72 @@ public class RestaurantStore implements IRestaurantStore {
      * If the name is the same then by their IDs
      */
     public Restaurant[] getRestaurantsByName() {
-        Restaurant[] restaurants = new Restaurant[restaurantArray.size()];
-        for(int i = 0;i<restaurantArray.size();i++){
-            restaurants[i]=restaurantArray.get(i);
-        }
-
-        Restaurant[] allRestaurants = new Restaurant[restaurants.length]; // new array
-        int size = 0;
-        Restaurant tempRestaurant;
-
-        //each element goes through the array
-        //same procedure as above but with two steps
-        for(int j=0 ;j<restaurants.length;j++){
-            for (int i = 0; i<size; i++){
-
-                //firstly compares the names
-                if (allRestaurants[i].getName().compareTo(restaurants[j].getName())>0){
-                    tempRestaurant = allRestaurants[i];
-                    allRestaurants[i]=restaurants[j];
-                    restaurants[j] = tempRestaurant;
-                }
-
-                //if names are the same , checks the  IDs
-                //IDs  cant be the same
-                else if (allRestaurants[i].getName().compareTo(restaurants[j].getName())==0){
-                    if (allRestaurants[i].getID().compareTo(restaurants[j].getID())>0){
-                        tempRestaurant = allRestaurants[i];
-                        allRestaurants[i]=restaurants[j];
-                        restaurants[j] = tempRestaurant;
-                    }
-                }
-            }
-            allRestaurants[size]=restaurants[j];
-            size++;
-        }
+        //the order is kept by addRestaurant, only the new restaurants are sorted in
+        Restaurant[] allRestaurants = new Restaurant[restaurantsByName.size()];
+        restaurantsByName.toArray(allRestaurants);
 
         //returns the organsied array
         return allRestaurants;
     }
 
-    //uses the method below for all the restaurants in the array
+    /**
+     * One page of the restaurants in the order of the method above
+     * @param offset the position of the first restaurant of the page
+     * @param limit the largest number of restaurants on the page
+     * @return the restaurants of the page, empty when the offset is past the end
+     */
+    public Restaurant[] getRestaurantsByName(int offset, int limit) {
+        return pageOf(restaurantsByName, offset, limit);
+    }
+
+    //the first k restaurants in the order of the method above
+    public Restaurant[] getRestaurantsByName(int k) {
+        return getRestaurantsByName(0, k);
+    }
+
+    //all the restaurants in the order of the method below, kept by addRestaurant
     public Restaurant[] getRestaurantsByDateEstablished() {
-        Restaurant[] restaurants = new Restaurant[restaurantArray.size()];
-        for(int i = 0;i<restaurantArray.size();i++){
-            restaurants[i]=restaurantArray.get(i);
+        Restaurant[] allRestaurants = new Restaurant[restaurantsByDate.size()];
+        restaurantsByDate.toArray(allRestaurants);
+        return allRestaurants;
+    }
+
+    /**
+     * One page of the restaurants in the order of the method above
+     * @param offset the position of the first restaurant of the page
+     * @param limit the largest number of restaurants on the page
+     * @return the restaurants of the page, empty when the offset is past the end
+     */
+    public Restaurant[] getRestaurantsByDateEstablished(int offset, int limit) {
+        return pageOf(restaurantsByDate, offset, limit);
+    }
+
+    //the first k restaurants in the order of the method above
+    public Restaurant[] getRestaurantsByDateEstablished(int k) {
+        return getRestaurantsByDateEstablished(0, k);
+    }
+
+    //only the restaurants of the page are copied from the sorted order
+    private static Restaurant[] pageOf(SortedView<Restaurant> order, int offset, int limit) {
+        Restaurant[] page = new Restaurant[pageSize(order.size(), offset, limit)];
+        if (page.length>0){
+            order.toArray(offset, page, 0, page.length);
         }
-        return getRestaurantsByDateEstablished(restaurants);
+        return page;
+    }
 
-        
+    /**
+     * The number of elements on a page
+     * @param total the number of elements in the whole listing
+     * @param offset the position of the first element of the page
+     * @param limit the largest number of elements on the page
+     * @return the size of the page, 0 when the offset or the limit is negative or the offset is past the end
+     */
+    private static int pageSize(int total, int offset, int limit) {
+        if (offset<0 || limit<0 || offset>=total){
+            return 0;
+        }
+        return Math.min(limit, total-offset);
     }
 
     /**
@@ -313,43 +642,14 @@ public class RestaurantStore implements IRestaurantStore {
      * Ids cant be equal
      */
     public Restaurant[] getRestaurantsByDateEstablished(Restaurant[] restaurants) {
-        Restaurant[] allRestaurants = new Restaurant[restaurants.length]; // new array
-        int size = 0;
-        Restaurant tempRestaurant;
-
-        //each element goes through the array like in the ones above
-        //only differnece is that there are 3 steps
-        for(int j=0 ;j<restaurants.length;j++){
-
-            //firstly checks the Estabilishment Date
-            for (int i = 0; i<size; i++){
-                if (allRestaurants[i].getDateEstablished().compareTo(restaurants[j].getDateEstablished())>0){
-                    tempRestaurant = allRestaurants[i];
-                    allRestaurants[i]=restaurants[j];
-                    restaurants[j] = tempRestaurant;
-                }
+        Restaurant[] allRestaurants = restaurants.clone();
 
-                //secondly the names
-                else if (allRestaurants[i].getDateEstablished().compareTo(restaurants[j].getDateEstablished())==0){
-                    if (allRestaurants[i].getName().compareTo(restaurants[j].getName())>0){
-                        tempRestaurant = allRestaurants[i];
-                        allRestaurants[i]=restaurants[j];
-                        restaurants[j] = tempRestaurant;
-                    }
-
-                    //thirdly the ids
-                    else if (allRestaurants[i].getName().compareTo(restaurants[j].getName())==0){
-                        if (allRestaurants[i].getID().compareTo(restaurants[j].getID())>0){
-                            tempRestaurant = allRestaurants[i];
-                            allRestaurants[i]=restaurants[j];
-                            restaurants[j] = tempRestaurant;
-                        }
-                    }
-                }
-            }
-            allRestaurants[size]=restaurants[j];
-            size++;
+        //the dates are compared as milliseconds instead of Date objects
+        long[] dates = new long[allRestaurants.length];
+        for(int i = 0;i<allRestaurants.length;i++){
+            dates[i]=allRestaurants[i].getDateEstablished().getTime();
         }
+        Sorter.sortByKey(allRestaurants, dates, false, BY_NAME_THEN_ID);
 
         //returns the new, sorted array
         return allRestaurants;
@@ -360,101 +660,99 @@ public class RestaurantStore implements IRestaurantStore {
      * If they are the same, then by their names
      * If names are the same then by their IDs
      * IDs cant be the same
-     * Same as the method above
+     * The restaurants without Warwick stars are left out
      */
     public Restaurant[] getRestaurantsByWarwickStars() {
-        Restaurant[] restaurants = new Restaurant[restaurantArray.size()];
-        for(int i = 0;i<restaurantArray.size();i++){
-            restaurants[i]=restaurantArray.get(i);
-        }
-        if (restaurants.length==0){
-            return new Restaurant[0];
-        }
-        Restaurant[] allRestaurants = new Restaurant[restaurants.length]; // new array
+        return getRestaurantsByWarwickStars(0, countStarredRestaurants());
+    }
+
+    /**
+     * One page of the restaurants in the order of the method above
+     * The buckets of the star levels are joined, the restaurants without stars are never read
+     * @param offset the position of the first restaurant of the page
+     * @param limit the largest number of restaurants on the page
+     * @return the restaurants of the page, empty when the offset is past the end
+     */
+    public Restaurant[] getRestaurantsByWarwickStars(int offset, int limit) {
+        Restaurant[] page = new Restaurant[pageSize(countStarredRestaurants(), offset, limit)];
+
+        //skips the whole buckets before the offset, then copies from the rest
         int size = 0;
-        Restaurant tempRestaurant;
-
-        //each element goes through the array
-        for(int j=0 ;j<restaurants.length;j++){
-
-            //there are three steps
-            //firstly compares the warwickstars
-            if(restaurants[j].getWarwickStars()>=1){
-                for (int i = 0; i<size; i++){
-                    if (allRestaurants[i].getWarwickStars()>restaurants[j].getWarwickStars()){
-                        tempRestaurant = allRestaurants[i];
-                        allRestaurants[i]=restaurants[j];
-                        restaurants[j] = tempRestaurant;
-                    }
-
-                    //then the names
-                    else if (allRestaurants[i].getWarwickStars()==restaurants[j].getWarwickStars()){
-                        if (allRestaurants[i].getName().compareTo(restaurants[j].getName())>0){
-                            tempRestaurant = allRestaurants[i];
-                            allRestaurants[i]=restaurants[j];
-                            restaurants[j] = tempRestaurant;
-                        }
-
-                        //lastly the ids
-                        else if (allRestaurants[i].getName().compareTo(restaurants[j].getName())==0){
-                            if (allRestaurants[i].getID().compareTo(restaurants[j].getID())>0){
-                                tempRestaurant = allRestaurants[i];
-                                allRestaurants[i]=restaurants[j];
-                                restaurants[j] = tempRestaurant;
-                            }
-                        }
-                    }
-                }
-                allRestaurants[size]=restaurants[j];
-                size++;
+        for(int stars = 1;stars<=MAX_WARWICK_STARS && size<page.length;stars++){
+            SortedView<Restaurant> bucket = restaurantsByStars[stars];
+            if (offset>=bucket.size()){
+                offset -= bucket.size();
+                continue;
             }
-            
-        }
-        Restaurant[] finalR = new Restaurant[size];
-        for(int i = 0;i<size;i++){
-            finalR[i]=allRestaurants[i];
+            int count = Math.min(bucket.size()-offset, page.length-size);
+            bucket.toArray(offset, page, size, count);
+            size += count;
+            offset = 0;
         }
+
         //sorted
-        return finalR;
+        return page;
+    }
+
+    //the number of restaurants with at least one Warwick star
+    private int countStarredRestaurants() {
+        int total = 0;
+        for(int stars = 1;stars<=MAX_WARWICK_STARS;stars++){
+            total += restaurantsByStars[stars].size();
+        }
+        return total;
     }
 
     /**
-     * Same as the ones above
      * Sorting order: Rating->Name->ID
+     * The highest rating goes first
      * @param restaurants the array of restaurants to sort
      */
     public Restaurant[] getRestaurantsByRating(Restaurant[] restaurants) {
-        Restaurant[] allRestaurants = new Restaurant[restaurants.length];
-        int size = 0;
-        Restaurant tempRestaurant;
-        for(int j=0 ;j<restaurants.length;j++){
-            for (int i = 0; i<size; i++){
-                if (allRestaurants[i].getCustomerRating()<restaurants[j].getCustomerRating()){
-                    tempRestaurant = allRestaurants[i];
-                    allRestaurants[i]=restaurants[j];
-                    restaurants[j] = tempRestaurant;
-                }
-                else if (allRestaurants[i].getCustomerRating()==restaurants[j].getCustomerRating()){
-                    if (allRestaurants[i].getName().compareTo(restaurants[j].getName())>0){
-                        tempRestaurant = allRestaurants[i];
-                        allRestaurants[i]=restaurants[j];
-                        restaurants[j] = tempRestaurant;
-                    }
-                    else if (allRestaurants[i].getName().compareTo(restaurants[j].getName())==0){
-                        if (allRestaurants[i].getID().compareTo(restaurants[j].getID())>0){
-                            tempRestaurant = allRestaurants[i];
-                            allRestaurants[i]=restaurants[j];
-                            restaurants[j] = tempRestaurant;
-                        }
-                    }
-                }
-            }
-            allRestaurants[size]=restaurants[j];
-            size++;
+        Restaurant[] allRestaurants = restaurants.clone();
+        float[] ratings = new float[allRestaurants.length];
+        for(int i = 0;i<allRestaurants.length;i++){
+            ratings[i]=allRestaurants[i].getCustomerRating();
         }
+        Sorter.sortByKey(allRestaurants, ratings, true, BY_NAME_THEN_ID);
         return allRestaurants;
     }
 
+    /**
+     * One page of all the restaurants in the order of the method above
+     * Only the restaurants up to the end of the page are kept in a bounded heap,
+     * the rest of the store is never sorted
+     * @param offset the position of the first restaurant of the page
+     * @param limit the largest number of restaurants on the page
+     * @return the restaurants of the page, empty when the offset is past the end
+     */
+    public Restaurant[] getRestaurantsByRating(int offset, int limit) {
+        int size = pageSize(restaurantArray.size(), offset, limit);
+        if (size==0){
+            return new Restaurant[0];
+        }
+        TopK<Restaurant> best = new TopK<>(offset+size, true, BY_NAME_THEN_ID);
+        for(int i = 0;i<restaurantArray.size();i++){
+            Restaurant restaurant = restaurantArray.get(i);
+            best.offer(restaurant, restaurant.getCustomerRating());
+        }
+        return dropFirst(best, offset);
+    }
+
+    //the k best rated restaurants in the order of the method above
+    public Restaurant[] getRestaurantsByRating(int k) {
+        return getRestaurantsByRating(0, k);
+    }
+
+    //the restaurants kept by the heap, without the ones before the page
+    private static Restaurant[] dropFirst(TopK<Restaurant> best, int offset) {
+        Restaurant[] head = new Restaurant[best.size()];
+        best.drainTo(head);
+        Restaurant[] page = new Restaurant[head.length-offset];
+        System.arraycopy(head, offset, page, 0, page.length);
+        return page;
+    }
+
     /**
      * Gets all the restaurants and their distance from the certain coordinates
      * @param latitude the x coordinate of Earth
@@ -462,76 +760,120 @@ public class RestaurantStore implements IRestaurantStore {
      * @return the desired RestaurantDistence array
      */
     public RestaurantDistance[] getRestaurantsByDistanceFrom(float latitude, float longitude) {
-        Restaurant[] restaurants = new Restaurant[restaurantArray.size()];
-        for(int i = 0;i<restaurantArray.size();i++){
-            restaurants[i]=restaurantArray.get(i);
-        }
-
         //returns nothing if the array is empty
-        if (restaurants.length==0){
+        if (restaurantArray.size()==0){
             return new RestaurantDistance[0];
         }
 
         //uses the next method to calculate the distance
-        return getRestaurantsByDistanceFrom(restaurants, latitude, longitude);
+        return getRestaurantsByDistanceFrom(getRestaurants(), latitude, longitude);
     }
 
     /**
      * Gets the restaurants from the input array and their distances from the given coordinates
+     * Sorting order: Distance->Name->ID
      * @param restaurants the array of restaurants we are looking for
      * @param latitude the x coordinate of Earth
      * @param longitude the y coordinate of Earth
      * @return the desired RestaurantDistance array
      */
     public RestaurantDistance[] getRestaurantsByDistanceFrom(Restaurant[] restaurants, float latitude, float longitude) {
-        RestaurantDistance[] allRestaurants = new RestaurantDistance[restaurants.length];
-        int size = 0;
-        RestaurantDistance tempRestaurant;
-
-        //each element goes through the array
-        for(int j=0 ;j<restaurants.length;j++){
-
-            //calculates the distance using the distance calculator method
-            float distance = distanceCalc.inKilometres(latitude, longitude, restaurants[j].getLatitude(), restaurants[j].getLongitude());
-            RestaurantDistance tempDistance = new RestaurantDistance(restaurants[j], distance);
-            
-            //sorts them according to the distance from the coordinates
-            for (int i = 0; i<size; i++){
-                if (allRestaurants[i].getDistance()>distance){
-                    tempRestaurant = allRestaurants[i];
-                    allRestaurants[i]=tempDistance;
-                    tempDistance = tempRestaurant;
-                }
+        Restaurant[] allRestaurants = restaurants.clone();
+
+        //calculates all the distances at once using the distance calculator method
+        float[] latitudes = new float[allRestaurants.length];
+        float[] longitudes = new float[allRestaurants.length];
+        for(int j=0 ;j<allRestaurants.length;j++){
+            latitudes[j]=allRestaurants[j].getLatitude();
+            longitudes[j]=allRestaurants[j].getLongitude();
+        }
+        float[] distances = new float[allRestaurants.length];
+        HaversineDistanceCalculator.inKilometres(latitude, longitude, latitudes, longitudes, distances);
 
-                //secondly by their names
-                else if (allRestaurants[i].getDistance()>distance){
-                    if (allRestaurants[i].getRestaurant().getName().compareTo(restaurants[j].getName())>0){
-                        tempRestaurant = allRestaurants[i];
-                        allRestaurants[i]=tempDistance;
-                        tempDistance = tempRestaurant;
-                    }
-
-                    //thirdly by their IDs
-                    else if (allRestaurants[i].getRestaurant().getName().compareTo(restaurants[j].getName())==0){
-                        if (allRestaurants[i].getRestaurant().getID().compareTo(restaurants[j].getID())>0){
-                            tempRestaurant = allRestaurants[i];
-                            allRestaurants[i]=tempDistance;
-                            tempDistance = tempRestaurant;
-                        }
-                    }
-                }
+        //the distances are sorted together with the restaurants
+        Sorter.sortByKey(allRestaurants, distances, false, BY_NAME_THEN_ID);
+
+        RestaurantDistance[] finalR = new RestaurantDistance[allRestaurants.length];
+        for(int i = 0;i<allRestaurants.length;i++){
+            finalR[i]=new RestaurantDistance(allRestaurants[i], distances[i]);
+        }
+        //sorted
+        return finalR;
+    }
+
+    /**
+     * One page of all the restaurants in the order of the method above
+     * The distances are calculated in blocks and only the restaurants up to the end of the page are kept,
+     * getNearestRestaurants is faster for the first page
+     * @param latitude the x coordinate of Earth
+     * @param longitude the y coordinate of Earth
+     * @param offset the position of the first restaurant of the page
+     * @param limit the largest number of restaurants on the page
+     * @return the restaurants of the page with their distances, empty when the offset is past the end
+     */
+    public RestaurantDistance[] getRestaurantsByDistanceFrom(float latitude, float longitude, int offset, int limit) {
+        int size = pageSize(restaurantArray.size(), offset, limit);
+        if (size==0){
+            return new RestaurantDistance[0];
+        }
+        TopK<Restaurant> nearest = new TopK<>(offset+size, false, BY_NAME_THEN_ID);
+        float[] latitudes = new float[DISTANCE_BLOCK];
+        float[] longitudes = new float[DISTANCE_BLOCK];
+        float[] distances = new float[DISTANCE_BLOCK];
+        for(int start = 0;start<restaurantArray.size();start += DISTANCE_BLOCK){
+            int count = Math.min(DISTANCE_BLOCK, restaurantArray.size()-start);
+            for(int j = 0;j<count;j++){
+                latitudes[j]=restaurantArray.get(start+j).getLatitude();
+                longitudes[j]=restaurantArray.get(start+j).getLongitude();
+            }
+            HaversineDistanceCalculator.inKilometres(latitude, longitude, latitudes, longitudes, count, distances);
+            for(int j = 0;j<count;j++){
+                nearest.offer(restaurantArray.get(start+j), distances[j]);
             }
-            allRestaurants[size]= tempDistance;
-            size++;          
         }
-        RestaurantDistance[] finalR = new RestaurantDistance[size];
-        for(int i = 0;i<size;i++){
-            finalR[i]=allRestaurants[i];
+
+        //the distances of the page are calculated again, the single and the batch calculation give the same values
+        Restaurant[] page = dropFirst(nearest, offset);
+        RestaurantDistance[] finalR = new RestaurantDistance[page.length];
+        for(int i = 0;i<page.length;i++){
+            finalR[i]=new RestaurantDistance(page[i], HaversineDistanceCalculator.inKilometres(latitude, longitude, page[i].getLatitude(), page[i].getLongitude()));
         }
-        //sorted
         return finalR;
     }
 
+    /**
+     * Gets the k nearest restaurants to the given coordinates using the spatial index
+     * Only the grid cells around the coordinates are checked
+     * Sorting order: Distance->Name->ID
+     * @param latitude the x coordinate of Earth
+     * @param longitude the y coordinate of Earth
+     * @param k the number of restaurants to get
+     * @return the k nearest restaurants with their distances
+     */
+    public RestaurantDistance[] getNearestRestaurants(float latitude, float longitude, int k) {
+        return toRestaurantDistances(restaurantGrid.nearest(latitude, longitude, k, BY_NAME_THEN_ID));
+    }
+
+    /**
+     * Gets the restaurants within a radius of the given coordinates using the spatial index
+     * Sorting order: Distance->Name->ID
+     * @param latitude the x coordinate of Earth
+     * @param longitude the y coordinate of Earth
+     * @param radiusKm the radius in kilometres
+     * @return the restaurants within the radius with their distances
+     */
+    public RestaurantDistance[] getRestaurantsWithin(float latitude, float longitude, float radiusKm) {
+        return toRestaurantDistances(restaurantGrid.within(latitude, longitude, radiusKm, BY_NAME_THEN_ID));
+    }
+
+    private static RestaurantDistance[] toRestaurantDistances(SpatialGrid.Neighbours<Restaurant> neighbours) {
+        RestaurantDistance[] result = new RestaurantDistance[neighbours.size()];
+        for (int i = 0; i<result.length; i++){
+            result[i] = new RestaurantDistance(neighbours.get(i), neighbours.getDistance(i));
+        }
+        return result;
+    }
+
     /**
      * Searches for the restaurants that contain a certain String
      * @param searchTerm the String that we search for between the restaurants
@@ -544,40 +886,171 @@ public class RestaurantStore implements IRestaurantStore {
         if (searchTerm==null){
             return contains;
         }
-        int size = 0;
-        
+
         //converts the input to be readable
         String searchTermConvertedFaster = stringFormatter.convertAccentsFaster(searchTerm);
 
         //splits the input to separate Strings
         //Recognises multiple spaces too
         String[] terms = searchTermConvertedFaster.split("\\s+");
+        if (terms.length==0){
+            return contains;
+        }
+        for(int j = 0;j<terms.length;j++){
+            terms[j]=toLowerCaseASCII(terms[j]);
+        }
+
+        //the index finds the names that contain every word
+        TrigramIndex.Matches<Restaurant> matches = restaurantNames.search(terms);
+        contains = new Restaurant[matches.size()];
+        for(int i = 0; i<contains.length;i++){
+            contains[i]=matches.get(i);
+        }
+
+        //returns the array organised by the ids of the restaurants
+        return contains;
+    }
+
+    /**
+     * Gets the restaurants that match the facets of a query
+     * @param query the selected facet values, null matches nothing
+     * @return the restaurants in ascending order of their ids
+     */
+    public Restaurant[] getRestaurantsMatching(RestaurantFacetQuery query) {
+        return getRestaurants(matchingRestaurants(query));
+    }
+
+    /**
+     * Gets the restaurants that match the facets of a query
+     * Sorting order: Name->ID
+     * @param query the selected facet values, null matches nothing
+     */
+    public Restaurant[] getRestaurantsMatchingByName(RestaurantFacetQuery query) {
+        Restaurant[] restaurants = matchingRestaurants(query);
+        Sorter.sort(restaurants, BY_NAME_THEN_ID);
+        return restaurants;
+    }
+
+    /**
+     * Gets the restaurants that match the facets of a query
+     * Sorting order: Rating->Name->ID
+     * @param query the selected facet values, null matches nothing
+     */
+    public Restaurant[] getRestaurantsMatchingByRating(RestaurantFacetQuery query) {
+        return getRestaurantsByRating(matchingRestaurants(query));
+    }
+
+    /**
+     * Gets the restaurants that match the facets of a query and their distances from the given coordinates
+     * Sorting order: Distance->Name->ID
+     * @param query the selected facet values, null matches nothing
+     * @param latitude the x coordinate of Earth
+     * @param longitude the y coordinate of Earth
+     */
+    public RestaurantDistance[] getRestaurantsMatchingByDistanceFrom(RestaurantFacetQuery query, float latitude, float longitude) {
+        return getRestaurantsByDistanceFrom(matchingRestaurants(query), latitude, longitude);
+    }
 
-        //checks every restaurant
-        for(int i = 0; i<restaurantArray.size();i++){
+    /**
+     * Counts the restaurants with each facet value among the restaurants that match a query
+     * @param query the selected facet values, null matches nothing
+     * @return the counts
+     */
+    public RestaurantFacetQuery.Counts getFacetCounts(RestaurantFacetQuery query) {
+        LongBitSet rows = matchingRows(query, ALL_FACETS);
+
+        //the values of a facet are joined with OR, so each facet is counted without its own selection,
+        //that way the other values show how many restaurants selecting them would add
+        //the options are joined with AND, they are counted in the full selection
+        return new RestaurantFacetQuery.Counts(rows.cardinality(),
+                countRows(matchingRows(query, CUISINE_FACET), cuisineRows),
+                countRows(matchingRows(query, ESTABLISHMENT_TYPE_FACET), establishmentTypeRows),
+                countRows(matchingRows(query, PRICE_RANGE_FACET), priceRangeRows),
+                countRows(rows, optionRows));
+    }
 
-            //checks every word
-            for(int j = 0;j<terms.length;j++){
+    //the number of matching rows in each bitset, the intersections are never made
+    private static int[] countRows(LongBitSet rows, LongBitSet[] valueRows) {
+        int[] counts = new int[valueRows.length];
+        for(int i = 0;i<valueRows.length;i++){
+            counts[i] = rows.andCardinality(valueRows[i]);
+        }
+        return counts;
+    }
 
-                //if name does not contain
-                if(!Pattern.compile(Pattern.quote(terms[j]), Pattern.CASE_INSENSITIVE).matcher(restaurantArray.get(i).getName()).find()){
-                    break;
+    //the rows of the restaurants that match every facet of the query, except the left out facet
+    private LongBitSet matchingRows(RestaurantFacetQuery query, int leftOutFacet) {
+        if (query==null){
+            return new LongBitSet();
+        }
+        LongBitSet rows = liveRows.copy();
+        if (leftOutFacet!=CUISINE_FACET){
+            keepSelected(rows, cuisineRows, query.cuisines);
+        }
+        if (leftOutFacet!=ESTABLISHMENT_TYPE_FACET){
+            keepSelected(rows, establishmentTypeRows, query.establishmentTypes);
+        }
+        if (leftOutFacet!=PRICE_RANGE_FACET){
+            keepSelected(rows, priceRangeRows, query.priceRanges);
+        }
+        for(int i = 0;i<OPTIONS.length;i++){
+            if (query.options[i]){
+                rows.and(optionRows[i]);
+            }
+        }
+        return rows;
+    }
+
+    //keeps the rows that have one of the selected values, a facet with nothing selected keeps every row
+    private static void keepSelected(LongBitSet rows, LongBitSet[] valueRows, boolean[] selected) {
+        LongBitSet anySelected = null;
+        for(int i = 0;i<valueRows.length;i++){
+            if (selected[i]){
+                if (anySelected==null){
+                    anySelected = valueRows[i].copy();
+                }
+                else {
+                    anySelected.or(valueRows[i]);
                 }
+            }
+        }
+        if (anySelected!=null){
+            rows.and(anySelected);
+        }
+    }
+
+    private Restaurant[] matchingRestaurants(RestaurantFacetQuery query) {
+        LongBitSet rows = matchingRows(query, ALL_FACETS);
+        Restaurant[] restaurants = new Restaurant[rows.cardinality()];
+        int size = 0;
+        for(int row = rows.nextSetBit(0); row>=0; row = rows.nextSetBit(row+1)){
+            restaurants[size++] = rowRestaurants[row];
+        }
+        return restaurants;
+    }
+
+    /**
+     * The name in the form the search index uses
+     * Accents are converted and the letters are lower case
+     * @param name name of a restaurant
+     * @return the normalised name
+     */
+    private String normaliseName(String name) {
+        return toLowerCaseASCII(StringFormatter.convertAccentsFaster(name));
+    }
 
-                //if it gets to the last word then the restaurant contains the string
-                //adds the restaurant to the array
-                if(j==terms.length-1){
-                    size++;
-                    Restaurant[] temp = new Restaurant[size];
-                    for(int k=0;k<size-1;k++){
-                        temp[k]=contains[k];
-                    }
-                    temp[size-1]=restaurantArray.get(i);
-                    contains = temp;
+    //lower case of the ascii letters only, like the case insensitive search did
+    private static String toLowerCaseASCII(String string) {
+        char[] chars = null;
+        for(int i = 0; i<string.length();i++){
+            char c = string.charAt(i);
+            if (c>='A' && c<='Z'){
+                if (chars==null){
+                    chars = string.toCharArray();
                 }
+                chars[i]=(char)(c+('a'-'A'));
             }
-        } 
-        //returns the array organsied by the names of the restaurants
-        return contains;
+        }
+        return chars==null ? string : new String(chars);
     }
 }
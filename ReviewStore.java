@@ -6,24 +6,40 @@ import uk.ac.warwick.cs126.models.Review;
 import java.io.*;
 import java.nio.charset.StandardCharsets;
 import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.regex.Pattern;
 
 import org.apache.commons.io.IOUtils;
 
+import uk.ac.warwick.cs126.structures.Blacklist;
+import uk.ac.warwick.cs126.structures.Leaderboard;
+import uk.ac.warwick.cs126.structures.LongHashMap;
 import uk.ac.warwick.cs126.structures.MyArrayList;
-import uk.ac.warwick.cs126.structures.SortedArrayList;
 
 import uk.ac.warwick.cs126.util.DataChecker;
+import uk.ac.warwick.cs126.util.TimestampParser;
 import uk.ac.warwick.cs126.util.KeywordChecker;
 import uk.ac.warwick.cs126.util.StringFormatter;
 
 
 public class ReviewStore implements IReviewStore {
 
+    //the number of reviews, the sum of their ratings and how many have each rating
+    private static class RatingTotals {
+        int count;
+        long sum;
+        int[] histogram = new int[5];
+    }
+
     private MyArrayList<Review> reviewArray;
     private DataChecker dataChecker;
-    private MyArrayList<Review> blackList;
+    private Blacklist blackList;
+    private LongHashMap<int[]> keywordCounts;
+    private LongHashMap<RatingTotals> restaurantRatings;
+    private LongHashMap<RatingTotals> customerRatings;
+    private Leaderboard customersByReviewCount;
+    private Leaderboard restaurantsByReviewCount;
+    private Leaderboard restaurantsByRating;
+    private int[] keywordScratch;
     private KeywordChecker keywordChecker;
     private StringFormatter stringFormatter;
 
@@ -31,15 +47,29 @@ public class ReviewStore implements IReviewStore {
      * Constructor method
      * @param reviewArray array that contains the reviews
      * @param dataChecked object for the metods in the DataChecker class
-     * @param blackList array that contains the blacklisted items
+     * @param blackList hash set that contains the blacklisted IDs
+     * @param keywordCounts count of each keyword in the reviews of each restaurant, by the restaurant id
+     * @param keywordScratch reused array for the keywords of one review
+     * @param restaurantRatings the ratings of the reviews of each restaurant, by the restaurant id
+     * @param customerRatings the ratings of the reviews of each customer, by the customer id
+     * @param customersByReviewCount the customers ranked by their number of reviews
+     * @param restaurantsByReviewCount the restaurants ranked by their number of reviews
+     * @param restaurantsByRating the restaurants ranked by their average rating
      * @param keywordChecker object for the methods in the KeywordChecker class
      * @param stringFormatter object for the methods in the StringFormatter class
      */
     public ReviewStore() {
         reviewArray = new MyArrayList<>();
         dataChecker = new DataChecker();
-        blackList = new MyArrayList<>();
+        blackList = new Blacklist();
+        keywordCounts = new LongHashMap<>();
+        restaurantRatings = new LongHashMap<>();
+        customerRatings = new LongHashMap<>();
+        customersByReviewCount = new Leaderboard();
+        restaurantsByReviewCount = new Leaderboard();
+        restaurantsByRating = new Leaderboard();
         keywordChecker = new KeywordChecker();
+        keywordScratch = new int[keywordChecker.getKeywordCount()];
         stringFormatter = new StringFormatter();
     }
 
@@ -67,7 +97,7 @@ public class ReviewStore implements IReviewStore {
 
             int reviewCount = 0;
             String row;
-            SimpleDateFormat formatter = new SimpleDateFormat("yyyy-MM-dd hh:mm:ss");
+            TimestampParser timestampParser = new TimestampParser();
 
             tsvReader.readLine();
             while ((row = tsvReader.readLine()) != null) {
@@ -77,7 +107,7 @@ public class ReviewStore implements IReviewStore {
                             Long.parseLong(data[0]),
                             Long.parseLong(data[1]),
                             Long.parseLong(data[2]),
-                            formatter.parse(data[3]),
+                            timestampParser.parse(data[3]),
                             data[4],
                             Integer.parseInt(data[5]));
                     loadedReviews[reviewCount++] = review;
@@ -107,10 +137,8 @@ public class ReviewStore implements IReviewStore {
         Review tmp;
 
         //then it checks if it is blacklisted
-        for(int i = 0;i<blackList.size();i++){
-            if(review.getID().equals(blackList.get(i).getID())){
-                return false;
-            }
+        if (blackList.contains(review.getID())){
+            return false;
         }
 
         //then it check if there is a review with the same id
@@ -119,18 +147,23 @@ public class ReviewStore implements IReviewStore {
             tmp = reviewArray.get(i);
             if (tmp.getID().equals(review.getID())){
                 reviewArray.remove(tmp);
-                blackList.add(review);
+                updateTotals(tmp, -1);
+                blackList.add(review.getID());
                 return false;
             }
             if(tmp.getCustomerID().equals(review.getCustomerID()) && tmp.getRestaurantID().equals(review.getRestaurantID())){
                 if(review.getDateReviewed().compareTo(tmp.getDateReviewed())>0){
-                    blackList.add(tmp);
+                    blackList.add(tmp.getID());
                     reviewArray.set(i, review);
+                    updateTotals(tmp, -1);
+                    updateTotals(review, 1);
                     return true;
                 }
             }
         }
         
+        updateTotals(review, 1);
+
         //adds review if the array is empty
         if (reviewArray.isEmpty()==true){         
             return reviewArray.add(review);        
@@ -157,6 +190,75 @@ public class ReviewStore implements IReviewStore {
         return reviewArray.add(review);
     }
 
+    /**
+     * Adds or takes away a review from the totals of its restaurant and its customer
+     * @param review the review that was added or removed
+     * @param sign 1 when it was added, -1 when it was removed
+     */
+    private void updateTotals(Review review, int sign) {
+        countKeywords(review, sign);
+
+        long restaurantID = review.getRestaurantID();
+        RatingTotals restaurant = countRating(restaurantRatings, restaurantID, review.getRating(), sign);
+        if (restaurant.count==0){
+            restaurantsByReviewCount.remove(restaurantID);
+            restaurantsByRating.remove(restaurantID);
+        }
+        else{
+            restaurantsByReviewCount.set(restaurantID, restaurant.count);
+            restaurantsByRating.set(restaurantID, ratingScore(restaurant));
+        }
+
+        long customerID = review.getCustomerID();
+        RatingTotals customer = countRating(customerRatings, customerID, review.getRating(), sign);
+        if (customer.count==0){
+            customersByReviewCount.remove(customerID);
+        }
+        else{
+            customersByReviewCount.set(customerID, customer.count);
+        }
+    }
+
+    private static RatingTotals countRating(LongHashMap<RatingTotals> ratings, long id, int rating, int sign) {
+        RatingTotals totals = ratings.get(id);
+        if (totals==null){
+            totals = new RatingTotals();
+            ratings.put(id, totals);
+        }
+        totals.count += sign;
+        totals.sum += sign*rating;
+        totals.histogram[rating-1] += sign;
+        return totals;
+    }
+
+    //the average rating times 100, calculated with floats like the ranking always did
+    private static long ratingScore(RatingTotals totals) {
+        return (long)(((float)totals.sum/(float)totals.count)*100);
+    }
+
+    /**
+     * Adds or takes away the keywords of a review from the counts of its restaurant
+     * @param review the review that was added or removed
+     * @param sign 1 when it was added, -1 when it was removed
+     */
+    private void countKeywords(Review review, int sign) {
+        long restaurantID = review.getRestaurantID();
+        int[] counts = keywordCounts.get(restaurantID);
+        if (counts==null){
+            counts = new int[keywordScratch.length];
+            keywordCounts.put(restaurantID, counts);
+        }
+
+        //only the keywords that were found are changed
+        if (keywordChecker.getScanner().scan(review.getReview(), keywordScratch)==0){
+            return;
+        }
+        for(int i = 0;i<keywordScratch.length;i++){
+            counts[i] += sign*keywordScratch[i];
+            keywordScratch[i] = 0;
+        }
+    }
+
     /**
      * Adds an array of reviews
      * @param reviews the array to be added
@@ -242,6 +344,30 @@ public class ReviewStore implements IReviewStore {
         return allReviews;
     }
 
+    /**
+     * One page of the reviews in the order of the method above
+     * Only the reviews of the page are copied
+     * @param offset the position of the first review of the page
+     * @param limit the largest number of reviews on the page
+     * @return the reviews of the page, empty when the offset is past the end
+     */
+    public Review[] getReviewsByDate(int offset, int limit) {
+        int total = reviewArray.size();
+        if (offset<0 || limit<0 || offset>=total){
+            return new Review[0];
+        }
+        Review[] page = new Review[Math.min(limit, total-offset)];
+        for(int i = 0;i<page.length;i++){
+            page[i]=reviewArray.get(offset+i);
+        }
+        return page;
+    }
+
+    //the k newest reviews
+    public Review[] getReviewsByDate(int k) {
+        return getReviewsByDate(0, k);
+    }
+
     /**
      * Gets all the reviews by their rating
      * @return array of all reviews sorted
@@ -340,65 +466,24 @@ public class ReviewStore implements IReviewStore {
      * @return floating point number  wich is the average rating of a certain customer
      */
     public float getAverageCustomerReviewRating(Long id) {
-        Review[] reviews = new Review[reviewArray.size()];
-        reviews = getReviewsByDate(); // load reviews
-        int[] allReviews = new int[0]; // new array
-
-        int size=0;
-
-        //search for the reviews with  the same customerID as the  ID
-        for (int i = 0;i<reviews.length;i++){
-
-            //adds the value of the review when its a match
-            if(reviews[i].getCustomerID().equals(id)){
-                int[] tempReviews = new int[size+1];
-                for(int j = 0;j<size;j++){
-                    tempReviews[j]=allReviews[j];
-                }
-                tempReviews[size]=reviews[i].getRating();
-                allReviews=tempReviews;
-                size++;
-            }
-        }
-
-        float result = 0;
-
-        //adds together the matches
-        for(int i=0;i<allReviews.length;i++){
-            result=result+allReviews[i];
-        }
-
-        //divides the result by the number of matches
-        result=result/allReviews.length;
-
-        return result;
+        return averageRating(id==null ? null : customerRatings.get(id));
     }
 
     //same as the one above but with a certain restaurant
     public float getAverageRestaurantReviewRating(Long id) {
-        Review[] reviews = new Review[reviewArray.size()];
-        reviews = getReviewsByDate();
-        int[] allReviews = new int[0];
+        return averageRating(id==null ? null : restaurantRatings.get(id));
+    }
 
-        int size=0;
-        for (int i = 0;i<reviews.length;i++){
-            if(reviews[i].getRestaurantID().equals(id)){
-                int[] tempReviews = new int[size+1];
-                for(int j = 0;j<size;j++){
-                    tempReviews[j]=allReviews[j];
-                }
-                tempReviews[size]=reviews[i].getRating();
-                allReviews=tempReviews;
-                size++;
-            }
-        }
-        float result = 0;
-        for(int i=0;i<allReviews.length;i++){
-            result=result+allReviews[i];
+    /**
+     * The average of the ratings, kept up to date by addReview
+     * @param totals the totals of a customer or a restaurant
+     * @return the average, or NaN when there are no reviews
+     */
+    private static float averageRating(RatingTotals totals) {
+        if (totals==null || totals.count==0){
+            return Float.NaN;
         }
-        result=result/allReviews.length;
-
-        return result;
+        return (float)totals.sum/totals.count;
     }
 
     /**
@@ -407,33 +492,22 @@ public class ReviewStore implements IReviewStore {
      * @return array of size five, and the amount of times the customer gave that rating to a restaurant
      */
     public int[] getCustomerReviewHistogramCount(Long id) {
-        Review[] reviews = new Review[reviewArray.size()];
-        reviews = getReviewsByDate(); // loads the array 
-        int[] result = new int[5];
-
-        //searches through the array
-        for(int i=0;i<reviews.length;i++){
-
-            //when its a match it increments the corresponding element of the array
-            if(reviews[i].getCustomerID().equals(id)){
-                result[reviews[i].getRating()-1]++;
-            }         
-        }
-        
-        return result;
+        return histogram(id==null ? null : customerRatings.get(id));
     }
 
     //same as the method above but for ratings on a given restaurant
     public int[] getRestaurantReviewHistogramCount(Long id) {
-        Review[] reviews = new Review[reviewArray.size()];
-        reviews = getReviewsByDate();
+        return histogram(id==null ? null : restaurantRatings.get(id));
+    }
+
+    //a copy of the histogram, so the totals can not be changed from outside
+    private static int[] histogram(RatingTotals totals) {
         int[] result = new int[5];
-        for(int i=0;i<reviews.length;i++){
-            if(reviews[i].getRestaurantID().equals(id)){
-                result[reviews[i].getRating()-1]++;
-            }         
+        if (totals!=null){
+            for(int i = 0;i<result.length;i++){
+                result[i]=totals.histogram[i];
+            }
         }
-        
         return result;
     }
 
@@ -510,118 +584,15 @@ public class ReviewStore implements IReviewStore {
      * @return an array of 20 elements that contains the customers with the most reviews in a descending order
      */
     public Long[] getTopCustomersByReviewCount() {
-        Long[][] customersWithScores=new Long[reviewArray.size()][2]; // two dimension array
-        Review[] reviews = new Review[reviewArray.size()]; 
-        reviews = getAllReviewsByCustomerID(); // loads the array such that the reviews with the same customerID are next to each other
-        int tempI=0;
-        int index=0;
-
-        //counts the number of reviews for each customer
-        for(int i =0;i<reviewArray.size();i++){
-
-            //the first column in the first row is the customer with the smallest ID
-            //the secon column is 1
-            if(i==0){
-                customersWithScores[0][0]=reviews[0].getCustomerID();
-                customersWithScores[0][1]=1L;
-            }
 
-            //if the customerID changes so does the row
-            else if(!(reviews[i].getCustomerID().equals(reviews[tempI].getCustomerID()))){
-                index++;
-                customersWithScores[index][0]=reviews[i].getCustomerID();
-                customersWithScores[index][1]=1L;
-                tempI=i;
-            }
-            
-            //if the customerID is the same, then the second column gets incremented and the row does not change
-            else{
-                customersWithScores[index][1]++;
-            }
-        }
-        
-        //next step is to sort them in a descending order
-        index++;
-        Long[][] sortedCustomersWithScore = new Long[index][2];
-        int size=0;
-        for(int i = 0;i<index;i++){
-            Long tempCustomer=customersWithScores[i][0];
-            Long tempScore=customersWithScores[i][1];
-            for(int j=0;j<size;j++){
-                if(tempScore.compareTo(sortedCustomersWithScore[j][1])>=0){
-                    Long temp1 = tempCustomer;
-                    Long temp2 = tempScore;
-                    tempCustomer= sortedCustomersWithScore[j][0];
-                    tempScore= sortedCustomersWithScore[j][1];
-                    sortedCustomersWithScore[j][0]=temp1;
-                    sortedCustomersWithScore[j][1]=temp2;
-
-                }
-            }
-            sortedCustomersWithScore[size][0]=tempCustomer;
-            sortedCustomersWithScore[size][1]=tempScore;
-            size++;        
-        }
-
-        //last step is to get the top 20
-        Long[] result = new Long[20];
-        for(int i = 0;i<result.length;i++){
-            result[i]=sortedCustomersWithScore[i][0];
-        }
-        return result;
+        //the ranking is kept up to date by addReview
+        //with the same number of reviews the larger id comes first
+        return customersByReviewCount.top();
     }
 
     //same as the method above but for the top 20 most reviewed restaurants
     public Long[] getTopRestaurantsByReviewCount() {
-        Long[][] restaurantsWithScores=new Long[reviewArray.size()][2];
-        Review[] reviews = new Review[reviewArray.size()];
-        reviews = getAllReviewsByRestaurantID();
-        int tempI=0;
-        int index=0;
-        for(int i =0;i<reviewArray.size();i++){
-            if(i==0){
-                restaurantsWithScores[0][0]=reviews[0].getRestaurantID();
-                restaurantsWithScores[0][1]=1L;
-            }
-            else if(!(reviews[i].getRestaurantID().equals(reviews[tempI].getRestaurantID()))){
-                index++;
-                restaurantsWithScores[index][0]=reviews[i].getRestaurantID();
-                restaurantsWithScores[index][1]=1L;
-                tempI=i;
-            }
-            else{
-                restaurantsWithScores[index][1]++;
-            }
-        }
-        
-        index++;
-        Long[][] sortedRestaurantsWithScore = new Long[index][2];
-        int size=0;
-        for(int i = 0;i<index;i++){
-            Long tempRestaurant=restaurantsWithScores[i][0];
-            Long tempScore=restaurantsWithScores[i][1];
-            for(int j=0;j<size;j++){
-                if(tempScore.compareTo(sortedRestaurantsWithScore[j][1])>=0){
-                    Long temp1 = tempRestaurant;
-                    Long temp2 = tempScore;
-                    tempRestaurant= sortedRestaurantsWithScore[j][0];
-                    tempScore= sortedRestaurantsWithScore[j][1];
-                    sortedRestaurantsWithScore[j][0]=temp1;
-                    sortedRestaurantsWithScore[j][1]=temp2;
-
-                }
-            }
-            sortedRestaurantsWithScore[size][0]=tempRestaurant;
-            sortedRestaurantsWithScore[size][1]=tempScore;
-            size++;        
-        }
-
-
-        Long[] result = new Long[20];
-        for(int i = 0;i<result.length;i++){
-            result[i]=sortedRestaurantsWithScore[i][0];
-        }
-        return result;
+        return restaurantsByReviewCount.top();
     }
 
     /**
@@ -629,87 +600,10 @@ public class ReviewStore implements IReviewStore {
      * @return the ids of the highest rated restaurants
      */
     public Long[] getTopRatedRestaurants() {
-        
-        //same two-dimension array but with 3 columns
-        Long[][] restaurantsWithScores=new Long[reviewArray.size()][3];
-        Review[] reviews = new Review[reviewArray.size()];
-        reviews = getAllReviewsByRestaurantID();//loads the reviews
-        int tempI=0;
-        int index=0;
-
-        //first column: restaurantID
-        //second column: number of ratings
-        //third column: sum of the values of the ratings
-        for(int i =0;i<reviewArray.size();i++){
-
-            //first element gets added no matter what
-            if(i==0){
-                restaurantsWithScores[0][0]=reviews[0].getRestaurantID();
-                restaurantsWithScores[0][1]=1L;
-                restaurantsWithScores[0][2]=Long.valueOf(reviews[0].getRating());
-            }
-
-            //if the restaurantID changes we jump to the next row
-            else if(!(reviews[i].getRestaurantID().equals(reviews[tempI].getRestaurantID()))){
-                index++;
-                restaurantsWithScores[index][0]=reviews[i].getRestaurantID();
-                restaurantsWithScores[index][1]=1L;
-                restaurantsWithScores[index][2]=Long.valueOf(reviews[i].getRating());
-                tempI=i;
-            }
-
-            //if the restaurantID does not change we increment the second column by one and the third by the value of the rating
-            else{
-                restaurantsWithScores[index][1]++;
-                restaurantsWithScores[index][2]+=Long.valueOf(reviews[i].getRating());
-            }
-        }
-        
-        //next step is to calculate the avarage rating to each restaurant
-        index++;
-        Long[][] restaurants=new Long[index][2];
-        for(int i=0; i<index;i++){
-            restaurants[i][0]=restaurantsWithScores[i][0];
-            restaurants[i][1]=(long)(((float)restaurantsWithScores[i][2]/(float)restaurantsWithScores[i][1])*100);
-        }
-
-        //next step is to sort the restaurants in a descending order of their rating
-        Long[][] sortedRestaurantsWithScore = new Long[index][2];
-        int size=0;
-        for(int i = 0;i<index;i++){
-            Long tempRestaurant=restaurants[i][0];
-            Long tempScore=restaurants[i][1];
-            for(int j=0;j<size;j++){
-                if(tempScore.compareTo(sortedRestaurantsWithScore[j][1])>=0){
-                    Long temp1 = tempRestaurant;
-                    Long temp2 = tempScore;
-                    tempRestaurant= sortedRestaurantsWithScore[j][0];
-                    tempScore= sortedRestaurantsWithScore[j][1];
-                    sortedRestaurantsWithScore[j][0]=temp1;
-                    sortedRestaurantsWithScore[j][1]=temp2;
 
-                }
-            }
-            sortedRestaurantsWithScore[size][0]=tempRestaurant;
-            sortedRestaurantsWithScore[size][1]=tempScore;
-            size++;        
-        }
-
-        //last step is to put the top 20 restaurants with the largest average rating to a new array
-        Long[] result = new Long[20];
-        if(size<5){
-            for(int i = 0;i<size;i++){
-                result[i]=sortedRestaurantsWithScore[i][0];
-            }
-        }
-        else{
-            for(int i = 0;i<result.length;i++){
-                result[i]=sortedRestaurantsWithScore[i][0];
-            }
-        }
-        
-
-        return result;
+        //the ranking is kept up to date by addReview
+        //the score is the average rating times 100, with the same score the larger id comes first
+        return restaurantsByRating.top();
     }
 
     /**
@@ -718,85 +612,30 @@ public class ReviewStore implements IReviewStore {
      * @return an array of 5 elements containing the 5 mostly-occuring keywords in a review for the restaurant
      */
     public String[] getTopKeywordsForRestaurant(Long id) {
-        SortedArrayList<String> keywords = new SortedArrayList<>();
-
-        //adds all the keywords in a sorted arraylist
-        //that means that the same keywords are going to be next to each other
-        for(int i=0;i<reviewArray.size();i++){
-            if(reviewArray.get(i).getRestaurantID().equals(id)){
-
-                //splits the review into words
-                String[] terms = reviewArray.get(i).getReview().split("\\s+");
 
-                //checks every word in the review with the keywordchecked
-                //if it is a keyword, it gets added
-                for(int j = 0;j<terms.length;j++){
-                    if(keywordChecker.isAKeyword(terms[j])){
-                        keywords.add(terms[j]);
-                    }
-                }
-            }
-        }
-
-        //next step is to count each of the keywords
-        String[][] keywordsArray = new String[1000][2];
-        int index = 0;
-        int tempI = 0;
-        for(int i =0;i<keywords.size();i++){
-            if(i==0){
-                keywordsArray[0][0]=keywords.get(0);
-                keywordsArray[0][1]="1";
-            }
-            else if(!(keywords.get(i).equals(keywords.get(tempI)))){
-                index++;
-                keywordsArray[index][0]=keywords.get(i);
-                keywordsArray[index][1]="1";
-                tempI = i;            
-            }
-            else{
-                int tempInt=Integer.parseInt(keywordsArray[index][1]);
-                tempInt++;
-                keywordsArray[index][1]=Integer.toString(tempInt);
-            }
+        //the counts are kept up to date by addReview
+        int[] counts = id==null ? null : keywordCounts.get(id);
+        String[] result = new String[5];
+        if (counts==null){
+            return result;
         }
-        index++;
-
-        //next step is to sort the keywords in descending order of their occurance
-        String[][] sortedKeyWords = new String[index][2];
-        int size=0;
-        for(int i = 0;i<index;i++){
-            String tempKeyword=keywordsArray[i][0];
-            String tempScore=keywordsArray[i][1];
-            for(int j=0;j<size;j++){
-                if(tempScore.compareTo(sortedKeyWords[j][1])>=0){
-                    String temp1 = tempKeyword;
-                    String temp2 = tempScore;
-                    tempKeyword= sortedKeyWords[j][0];
-                    tempScore= sortedKeyWords[j][1];
-                    sortedKeyWords[j][0]=temp1;
-                    sortedKeyWords[j][1]=temp2;
 
+        //gets the top 5 mostly occuring keyword 
+        //with the same count the keyword later in the alphabet comes first
+        boolean[] taken = new boolean[counts.length];
+        for(int i = 0;i<result.length;i++){
+            int best = -1;
+            for(int j = counts.length-1;j>=0;j--){
+                if(!taken[j] && counts[j]>0 && (best<0 || counts[j]>counts[best])){
+                    best = j;
                 }
             }
-            sortedKeyWords[size][0]=tempKeyword;
-            sortedKeyWords[size][1]=tempScore;
-            size++;
-        }
-
-        //last step is to get the top 5 mostly occuring keyword 
-        
-        String[] result = new String[5];
-        if(size<5){
-            for (int i = 0;i<size;i++){
-                result[i]=sortedKeyWords[i][0];
-            }
-        }
-        else{
-            for (int i = 0;i<result.length;i++){
-                result[i]=sortedKeyWords[i][0];
+            if(best<0){
+                break;
             }
+            taken[best] = true;
+            result[i]=keywordChecker.getKeyword(best);
         }
-        
 
         return result;
     }
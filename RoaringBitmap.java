@@ -0,0 +1,491 @@
+package uk.ac.warwick.cs126.structures;
+
+public class RoaringBitmap {
+
+    //a container with more values than this is stored as bits
+    private static final int ARRAY_LIMIT = 4096;
+    private static final int BITMAP_WORDS = 1 << 10;
+
+    //the containers in order of their keys, the key is the upper 16 bits of the values
+    private char[] keys;
+    private Container[] containers;
+    private int size;
+
+    //the lower 16 bits of the values with the same key
+    //either a sorted array of the values or a bitmap of 65536 bits
+    private static class Container {
+        char[] values;
+        long[] bits;
+        int cardinality;
+
+        static Container ofArray(char[] values, int cardinality) {
+            Container container = new Container();
+            container.values = values;
+            container.cardinality = cardinality;
+            return container;
+        }
+
+        static Container ofBits(long[] bits) {
+            Container container = new Container();
+            container.bits = bits;
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                container.cardinality += Long.bitCount(bits[i]);
+            }
+            return container;
+        }
+
+        boolean contains(char value) {
+            if (bits != null) {
+                return (bits[value >>> 6] & (1L << value)) != 0;
+            }
+            return indexOf(value) >= 0;
+        }
+
+        //binary search in the array, or -(insertion point + 1)
+        int indexOf(char value) {
+            int left = 0;
+            int right = cardinality - 1;
+            while (left <= right) {
+                int middle = (left + right) >>> 1;
+                if (values[middle] < value) {
+                    left = middle + 1;
+                }
+                else if (values[middle] > value) {
+                    right = middle - 1;
+                }
+                else {
+                    return middle;
+                }
+            }
+            return -(left + 1);
+        }
+
+        boolean add(char value) {
+            if (bits == null) {
+                int index = indexOf(value);
+                if (index >= 0) {
+                    return false;
+                }
+                if (cardinality < ARRAY_LIMIT) {
+                    int position = -(index + 1);
+                    if (cardinality == values.length) {
+                        char[] bigger = new char[Math.min(ARRAY_LIMIT, cardinality * 2)];
+                        System.arraycopy(values, 0, bigger, 0, cardinality);
+                        values = bigger;
+                    }
+                    System.arraycopy(values, position, values, position + 1, cardinality - position);
+                    values[position] = value;
+                    cardinality++;
+                    return true;
+                }
+                toBits();
+            }
+            long word = bits[value >>> 6];
+            long changed = word | (1L << value);
+            if (changed == word) {
+                return false;
+            }
+            bits[value >>> 6] = changed;
+            cardinality++;
+            return true;
+        }
+
+        boolean remove(char value) {
+            if (bits == null) {
+                int index = indexOf(value);
+                if (index < 0) {
+                    return false;
+                }
+                System.arraycopy(values, index + 1, values, index, cardinality - index - 1);
+                cardinality--;
+                return true;
+            }
+            long word = bits[value >>> 6];
+            long changed = word & ~(1L << value);
+            if (changed == word) {
+                return false;
+            }
+            bits[value >>> 6] = changed;
+            cardinality--;
+            if (cardinality <= ARRAY_LIMIT / 2) {
+                toArray();
+            }
+            return true;
+        }
+
+        void toBits() {
+            bits = new long[BITMAP_WORDS];
+            for (int i = 0; i < cardinality; i++) {
+                bits[values[i] >>> 6] |= 1L << values[i];
+            }
+            values = null;
+        }
+
+        void toArray() {
+            values = new char[Math.max(4, cardinality)];
+            int count = 0;
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                long word = bits[i];
+                while (word != 0) {
+                    values[count++] = (char) ((i << 6) + Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+            bits = null;
+        }
+
+        //the right form for the number of values
+        Container normalise() {
+            if (bits != null && cardinality <= ARRAY_LIMIT) {
+                toArray();
+            }
+            return this;
+        }
+    }
+
+    /**
+     * Constructor method
+     * Compressed set of non-negative ints, meant for dense ordinals
+     */
+    public RoaringBitmap() {
+        keys = new char[4];
+        containers = new Container[4];
+    }
+
+    //the index of the container with the key, or -(insertion point + 1)
+    private int indexOfKey(char key) {
+        int left = 0;
+        int right = size - 1;
+        while (left <= right) {
+            int middle = (left + right) >>> 1;
+            if (keys[middle] < key) {
+                left = middle + 1;
+            }
+            else if (keys[middle] > key) {
+                right = middle - 1;
+            }
+            else {
+                return middle;
+            }
+        }
+        return -(left + 1);
+    }
+
+    //adds a container at the position, empty containers are not kept
+    private void insert(int position, char key, Container container) {
+        if (container.cardinality == 0) {
+            return;
+        }
+        if (size == keys.length) {
+            char[] biggerKeys = new char[size * 2];
+            Container[] biggerContainers = new Container[size * 2];
+            System.arraycopy(keys, 0, biggerKeys, 0, size);
+            System.arraycopy(containers, 0, biggerContainers, 0, size);
+            keys = biggerKeys;
+            containers = biggerContainers;
+        }
+        System.arraycopy(keys, position, keys, position + 1, size - position);
+        System.arraycopy(containers, position, containers, position + 1, size - position);
+        keys[position] = key;
+        containers[position] = container;
+        size++;
+    }
+
+    //adds a container after the last one, the keys must be added in order
+    private void append(char key, Container container) {
+        insert(size, key, container);
+    }
+
+    /**
+     * Adds a value
+     * @param value the value, must not be negative
+     * @return true when it was not in the set
+     */
+    public boolean add(int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Negative value " + value);
+        }
+        char key = (char) (value >>> 16);
+        int index = indexOfKey(key);
+        if (index < 0) {
+            Container container = Container.ofArray(new char[4], 1);
+            container.values[0] = (char) value;
+            insert(-(index + 1), key, container);
+            return true;
+        }
+        return containers[index].add((char) value);
+    }
+
+    public boolean contains(int value) {
+        if (value < 0) {
+            return false;
+        }
+        int index = indexOfKey((char) (value >>> 16));
+        return index >= 0 && containers[index].contains((char) value);
+    }
+
+    /**
+     * Removes a value
+     * @param value the value
+     * @return true when it was in the set
+     */
+    public boolean remove(int value) {
+        if (value < 0) {
+            return false;
+        }
+        int index = indexOfKey((char) (value >>> 16));
+        if (index < 0 || !containers[index].remove((char) value)) {
+            return false;
+        }
+        if (containers[index].cardinality == 0) {
+            System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+            System.arraycopy(containers, index + 1, containers, index, size - index - 1);
+            size--;
+            containers[size] = null;
+        }
+        return true;
+    }
+
+    public int cardinality() {
+        int cardinality = 0;
+        for (int i = 0; i < size; i++) {
+            cardinality += containers[i].cardinality;
+        }
+        return cardinality;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * The values in ascending order
+     * @return array of the values
+     */
+    public int[] toArray() {
+        int[] result = new int[cardinality()];
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            int high = keys[i] << 16;
+            Container container = containers[i];
+            if (container.bits == null) {
+                for (int j = 0; j < container.cardinality; j++) {
+                    result[count++] = high | container.values[j];
+                }
+            }
+            else {
+                for (int j = 0; j < BITMAP_WORDS; j++) {
+                    long word = container.bits[j];
+                    while (word != 0) {
+                        result[count++] = high | ((j << 6) + Long.numberOfTrailingZeros(word));
+                        word &= word - 1;
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * The values that are in both sets
+     * @param bitmap1,bitmap2 the sets
+     * @return a new set
+     */
+    public static RoaringBitmap and(RoaringBitmap bitmap1, RoaringBitmap bitmap2) {
+        RoaringBitmap result = new RoaringBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < bitmap1.size && j < bitmap2.size) {
+            if (bitmap1.keys[i] < bitmap2.keys[j]) {
+                i++;
+            }
+            else if (bitmap1.keys[i] > bitmap2.keys[j]) {
+                j++;
+            }
+            else {
+                result.append(bitmap1.keys[i], and(bitmap1.containers[i], bitmap2.containers[j]));
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * The values that are in either set
+     * @param bitmap1,bitmap2 the sets
+     * @return a new set
+     */
+    public static RoaringBitmap or(RoaringBitmap bitmap1, RoaringBitmap bitmap2) {
+        RoaringBitmap result = new RoaringBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < bitmap1.size || j < bitmap2.size) {
+            if (j == bitmap2.size || (i < bitmap1.size && bitmap1.keys[i] < bitmap2.keys[j])) {
+                result.append(bitmap1.keys[i], copy(bitmap1.containers[i]));
+                i++;
+            }
+            else if (i == bitmap1.size || bitmap1.keys[i] > bitmap2.keys[j]) {
+                result.append(bitmap2.keys[j], copy(bitmap2.containers[j]));
+                j++;
+            }
+            else {
+                result.append(bitmap1.keys[i], or(bitmap1.containers[i], bitmap2.containers[j]));
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * The values of the first set that are not in the second
+     * @param bitmap1,bitmap2 the sets
+     * @return a new set
+     */
+    public static RoaringBitmap andNot(RoaringBitmap bitmap1, RoaringBitmap bitmap2) {
+        RoaringBitmap result = new RoaringBitmap();
+        int j = 0;
+        for (int i = 0; i < bitmap1.size; i++) {
+            while (j < bitmap2.size && bitmap2.keys[j] < bitmap1.keys[i]) {
+                j++;
+            }
+            if (j < bitmap2.size && bitmap2.keys[j] == bitmap1.keys[i]) {
+                result.append(bitmap1.keys[i], andNot(bitmap1.containers[i], bitmap2.containers[j]));
+            }
+            else {
+                result.append(bitmap1.keys[i], copy(bitmap1.containers[i]));
+            }
+        }
+        return result;
+    }
+
+    private static Container copy(Container container) {
+        if (container.bits != null) {
+            long[] bits = new long[BITMAP_WORDS];
+            System.arraycopy(container.bits, 0, bits, 0, BITMAP_WORDS);
+            Container result = Container.ofArray(null, container.cardinality);
+            result.bits = bits;
+            return result;
+        }
+        char[] values = new char[Math.max(4, container.cardinality)];
+        System.arraycopy(container.values, 0, values, 0, container.cardinality);
+        return Container.ofArray(values, container.cardinality);
+    }
+
+    private static Container and(Container container1, Container container2) {
+        if (container1.bits != null && container2.bits != null) {
+            long[] bits = new long[BITMAP_WORDS];
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                bits[i] = container1.bits[i] & container2.bits[i];
+            }
+            return Container.ofBits(bits).normalise();
+        }
+
+        //walks the array and checks the other container
+        if (container1.bits != null) {
+            Container swap = container1;
+            container1 = container2;
+            container2 = swap;
+        }
+        char[] values = new char[Math.max(4, container1.cardinality)];
+        int count = 0;
+        if (container2.bits != null) {
+            for (int i = 0; i < container1.cardinality; i++) {
+                if (container2.contains(container1.values[i])) {
+                    values[count++] = container1.values[i];
+                }
+            }
+        }
+        else {
+            int i = 0;
+            int j = 0;
+            while (i < container1.cardinality && j < container2.cardinality) {
+                if (container1.values[i] < container2.values[j]) {
+                    i++;
+                }
+                else if (container1.values[i] > container2.values[j]) {
+                    j++;
+                }
+                else {
+                    values[count++] = container1.values[i];
+                    i++;
+                    j++;
+                }
+            }
+        }
+        return Container.ofArray(values, count);
+    }
+
+    private static Container or(Container container1, Container container2) {
+        if (container1.bits != null || container2.bits != null) {
+            long[] bits = new long[BITMAP_WORDS];
+            orInto(bits, container1);
+            orInto(bits, container2);
+            return Container.ofBits(bits);
+        }
+
+        //merges the two sorted arrays
+        char[] values = new char[container1.cardinality + container2.cardinality];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < container1.cardinality || j < container2.cardinality) {
+            if (j == container2.cardinality || (i < container1.cardinality && container1.values[i] < container2.values[j])) {
+                values[count++] = container1.values[i++];
+            }
+            else if (i == container1.cardinality || container1.values[i] > container2.values[j]) {
+                values[count++] = container2.values[j++];
+            }
+            else {
+                values[count++] = container1.values[i];
+                i++;
+                j++;
+            }
+        }
+        Container result = Container.ofArray(values, count);
+        if (count > ARRAY_LIMIT) {
+            result.toBits();
+        }
+        return result;
+    }
+
+    private static void orInto(long[] bits, Container container) {
+        if (container.bits != null) {
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                bits[i] |= container.bits[i];
+            }
+        }
+        else {
+            for (int i = 0; i < container.cardinality; i++) {
+                bits[container.values[i] >>> 6] |= 1L << container.values[i];
+            }
+        }
+    }
+
+    private static Container andNot(Container container1, Container container2) {
+        if (container1.bits != null) {
+            long[] bits = new long[BITMAP_WORDS];
+            System.arraycopy(container1.bits, 0, bits, 0, BITMAP_WORDS);
+            if (container2.bits != null) {
+                for (int i = 0; i < BITMAP_WORDS; i++) {
+                    bits[i] &= ~container2.bits[i];
+                }
+            }
+            else {
+                for (int i = 0; i < container2.cardinality; i++) {
+                    bits[container2.values[i] >>> 6] &= ~(1L << container2.values[i]);
+                }
+            }
+            return Container.ofBits(bits).normalise();
+        }
+        char[] values = new char[Math.max(4, container1.cardinality)];
+        int count = 0;
+        for (int i = 0; i < container1.cardinality; i++) {
+            if (!container2.contains(container1.values[i])) {
+                values[count++] = container1.values[i];
+            }
+        }
+        return Container.ofArray(values, count);
+    }
+}
@@ -0,0 +1,153 @@
+package uk.ac.warwick.cs126.structures;
+
+import java.util.Comparator;
+
+import uk.ac.warwick.cs126.util.Sorter;
+
+public class SortedView<E> {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final Comparator<? super E> order;
+
+    //the merged elements in order, and the elements added since the last merge
+    //the new ones are only sorted and merged in when the view is read
+    private Object[] sorted;
+    private int sortedCount;
+    private Object[] pending;
+    private int pendingCount;
+
+    /**
+     * Constructor method
+     * Keeps elements in the order of a comparator, so reading them in order is just a copy
+     * The order must be total, two different elements can not be equal
+     * @param order the order of the elements
+     */
+    public SortedView(Comparator<? super E> order) {
+        this.order = order;
+        sorted = new Object[INITIAL_CAPACITY];
+        pending = new Object[INITIAL_CAPACITY];
+    }
+
+    public int size() {
+        return sortedCount + pendingCount;
+    }
+
+    /**
+     * Adds an element, it is put in its place on the next read
+     * @param item the element
+     */
+    public void add(E item) {
+        if (pendingCount == pending.length) {
+            Object[] bigger = new Object[pending.length * 2];
+            System.arraycopy(pending, 0, bigger, 0, pendingCount);
+            pending = bigger;
+        }
+        pending[pendingCount++] = item;
+    }
+
+    /**
+     * Removes an element
+     * @param item the element, found by the order, so an equal element is removed too
+     * @return true when it was in the view
+     */
+    @SuppressWarnings("unchecked")
+    public boolean remove(E item) {
+        for (int i = pendingCount - 1; i >= 0; i--) {
+            if (order.compare((E) pending[i], item) == 0) {
+                pendingCount--;
+                pending[i] = pending[pendingCount];
+                pending[pendingCount] = null;
+                return true;
+            }
+        }
+
+        int index = indexOf(item);
+        if (index < 0) {
+            return false;
+        }
+        sortedCount--;
+        System.arraycopy(sorted, index + 1, sorted, index, sortedCount - index);
+        sorted[sortedCount] = null;
+        return true;
+    }
+
+    /**
+     * Copies the elements in order
+     * @param target the array to fill, its length must be size()
+     */
+    public void toArray(E[] target) {
+        if (target.length != size()) {
+            throw new IllegalArgumentException("Target: " + target.length + ", size: " + size());
+        }
+        toArray(0, target, 0, target.length);
+    }
+
+    /**
+     * Copies a range of the elements in order
+     * @param from the position of the first element to copy
+     * @param target the array to fill
+     * @param targetFrom the index in the target of the first element
+     * @param count the number of elements to copy
+     */
+    public void toArray(int from, E[] target, int targetFrom, int count) {
+        if (from < 0 || count < 0 || from + count > size()) {
+            throw new ArrayIndexOutOfBoundsException("Range [" + from + ", " + (from + count) + ") of " + size());
+        }
+        merge();
+        System.arraycopy(sorted, from, target, targetFrom, count);
+    }
+
+    //sorts the pending elements and merges them with the sorted ones from the back
+    @SuppressWarnings("unchecked")
+    private void merge() {
+        if (pendingCount == 0) {
+            return;
+        }
+        Sorter.sort((E[]) pending, 0, pendingCount, order);
+
+        int total = sortedCount + pendingCount;
+        if (total > sorted.length) {
+            Object[] bigger = new Object[Math.max(total, sorted.length * 2)];
+            System.arraycopy(sorted, 0, bigger, 0, sortedCount);
+            sorted = bigger;
+        }
+        int i = sortedCount - 1;
+        int j = pendingCount - 1;
+        for (int k = total - 1; j >= 0; k--) {
+            if (i >= 0 && order.compare((E) sorted[i], (E) pending[j]) > 0) {
+                sorted[k] = sorted[i--];
+            }
+            else {
+                sorted[k] = pending[j--];
+            }
+        }
+        sortedCount = total;
+
+        for (int k = 0; k < pendingCount; k++) {
+            pending[k] = null;
+        }
+        pendingCount = 0;
+    }
+
+    //binary search in the sorted elements
+    @SuppressWarnings("unchecked")
+    private int indexOf(E item) {
+        int left = 0;
+        int right = sortedCount - 1;
+        while (left <= right) {
+            int middle = (left + right) >>> 1;
+            int comparison = order.compare((E) sorted[middle], item);
+            if (comparison < 0) {
+                left = middle + 1;
+            }
+            else if (comparison > 0) {
+                right = middle - 1;
+            }
+            else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+}
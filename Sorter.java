@@ -0,0 +1,269 @@
+package uk.ac.warwick.cs126.util;
+
+import java.util.Comparator;
+
+public class Sorter {
+
+    //runs shorter than this are sorted by insertion before they are merged
+    private static final int RUN_LENGTH = 32;
+
+    /**
+     * Sorts the array with a stable merge sort
+     * Equal elements keep their order, so sorts by different orders can be chained
+     * @param items the array to sort
+     * @param comparator the order of the elements
+     */
+    public static <E> void sort(E[] items, Comparator<? super E> comparator) {
+        sort(items, 0, items.length, comparator);
+    }
+
+    /**
+     * Sorts a part of the array with a stable merge sort
+     * @param items the array to sort
+     * @param from index of the first element to sort
+     * @param to index after the last element to sort
+     * @param comparator the order of the elements
+     */
+    public static <E> void sort(E[] items, int from, int to, Comparator<? super E> comparator) {
+        checkRange(items.length, from, to);
+        int count = to - from;
+        if (count < 2) {
+            return;
+        }
+
+        for (int start = from; start < to; start += RUN_LENGTH) {
+            insertionSort(items, start, Math.min(start + RUN_LENGTH, to), comparator);
+        }
+        if (count <= RUN_LENGTH) {
+            return;
+        }
+
+        //bottom-up merges, the source and the target swap after every pass
+        E[] source = items;
+        E[] target = items.clone();
+        for (int width = RUN_LENGTH; width < count; width *= 2) {
+            for (int left = from; left < to; left += 2 * width) {
+                int middle = Math.min(left + width, to);
+                int right = Math.min(left + 2 * width, to);
+                merge(source, target, left, middle, right, comparator);
+            }
+            E[] swap = source;
+            source = target;
+            target = swap;
+        }
+        if (source != items) {
+            System.arraycopy(source, from, items, from, count);
+        }
+    }
+
+    /**
+     * Sorts the array by a primitive key with a stable merge sort
+     * The keys are compared first, the comparator is only called when two keys are equal
+     * The keys are moved with the elements, so afterwards keys[i] is the key of items[i]
+     * @param items the array to sort
+     * @param keys the key of each element
+     * @param descending true to put the largest key first
+     * @param tieBreak the order of the elements with equal keys, null keeps their order
+     */
+    public static <E> void sortByKey(E[] items, long[] keys, boolean descending, Comparator<? super E> tieBreak) {
+        if (keys.length != items.length) {
+            throw new IllegalArgumentException("Keys: " + keys.length + ", items: " + items.length);
+        }
+        int count = items.length;
+        if (count < 2) {
+            return;
+        }
+
+        //a descending order is the ascending order of the flipped keys
+        if (descending) {
+            flip(keys, count);
+        }
+
+        for (int start = 0; start < count; start += RUN_LENGTH) {
+            insertionSort(items, keys, start, Math.min(start + RUN_LENGTH, count), tieBreak);
+        }
+        if (count > RUN_LENGTH) {
+            E[] source = items;
+            long[] sourceKeys = keys;
+            E[] target = items.clone();
+            long[] targetKeys = new long[count];
+            for (int width = RUN_LENGTH; width < count; width *= 2) {
+                for (int left = 0; left < count; left += 2 * width) {
+                    int middle = Math.min(left + width, count);
+                    int right = Math.min(left + 2 * width, count);
+                    merge(source, sourceKeys, target, targetKeys, left, middle, right, tieBreak);
+                }
+                E[] swap = source;
+                source = target;
+                target = swap;
+                long[] swapKeys = sourceKeys;
+                sourceKeys = targetKeys;
+                targetKeys = swapKeys;
+            }
+            if (source != items) {
+                System.arraycopy(source, 0, items, 0, count);
+                System.arraycopy(sourceKeys, 0, keys, 0, count);
+            }
+        }
+
+        if (descending) {
+            flip(keys, count);
+        }
+    }
+
+    /**
+     * Sorts the array by a float key with a stable merge sort
+     * The floats are compared like Float.compare, except that 0.0 and -0.0 are equal
+     * The keys are moved with the elements, so afterwards keys[i] is the key of items[i]
+     * @param items the array to sort
+     * @param keys the key of each element
+     * @param descending true to put the largest key first
+     * @param tieBreak the order of the elements with equal keys, null keeps their order
+     */
+    public static <E> void sortByKey(E[] items, float[] keys, boolean descending, Comparator<? super E> tieBreak) {
+        if (keys.length != items.length) {
+            throw new IllegalArgumentException("Keys: " + keys.length + ", items: " + items.length);
+        }
+        long[] longKeys = new long[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            longKeys[i] = orderedBits(keys[i]);
+        }
+        sortByKey(items, longKeys, descending, tieBreak);
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = fromOrderedBits(longKeys[i]);
+        }
+    }
+
+    /**
+     * Joins two orders, the second one is only used when the first one finds two elements equal
+     * @param first the main order
+     * @param second the order of the elements the first one finds equal
+     * @return the joined order
+     */
+    public static <E> Comparator<E> thenComparing(final Comparator<? super E> first, final Comparator<? super E> second) {
+        return new Comparator<E>() {
+            public int compare(E item1, E item2) {
+                int result = first.compare(item1, item2);
+                if (result != 0) {
+                    return result;
+                }
+                return second.compare(item1, item2);
+            }
+        };
+    }
+
+    /**
+     * The opposite of an order
+     * @param comparator the order to reverse
+     * @return the reversed order
+     */
+    public static <E> Comparator<E> reversed(final Comparator<? super E> comparator) {
+        return new Comparator<E>() {
+            public int compare(E item1, E item2) {
+                return comparator.compare(item2, item1);
+            }
+        };
+    }
+
+    //the bits of a float as a long that has the same order as the float
+    private static long orderedBits(float value) {
+        int bits = Float.floatToIntBits(value + 0.0f);
+        return bits ^ ((bits >> 31) & 0x7fffffff);
+    }
+
+    private static float fromOrderedBits(long ordered) {
+        int bits = (int) ordered;
+        return Float.intBitsToFloat(bits ^ ((bits >> 31) & 0x7fffffff));
+    }
+
+    //~key is -key-1, it reverses the order without overflowing
+    private static void flip(long[] keys, int count) {
+        for (int i = 0; i < count; i++) {
+            keys[i] = ~keys[i];
+        }
+    }
+
+    private static <E> void insertionSort(E[] items, int from, int to, Comparator<? super E> comparator) {
+        for (int i = from + 1; i < to; i++) {
+            E item = items[i];
+            int j = i - 1;
+            while (j >= from && comparator.compare(items[j], item) > 0) {
+                items[j + 1] = items[j];
+                j--;
+            }
+            items[j + 1] = item;
+        }
+    }
+
+    private static <E> void insertionSort(E[] items, long[] keys, int from, int to, Comparator<? super E> tieBreak) {
+        for (int i = from + 1; i < to; i++) {
+            E item = items[i];
+            long key = keys[i];
+            int j = i - 1;
+            while (j >= from && compare(keys[j], items[j], key, item, tieBreak) > 0) {
+                items[j + 1] = items[j];
+                keys[j + 1] = keys[j];
+                j--;
+            }
+            items[j + 1] = item;
+            keys[j + 1] = key;
+        }
+    }
+
+    //merges [left, middle) and [middle, right) of the source into the target, the left one wins ties
+    private static <E> void merge(E[] source, E[] target, int left, int middle, int right, Comparator<? super E> comparator) {
+
+        //the two halves are already in order, for example when the input was almost sorted
+        if (middle == right || comparator.compare(source[middle - 1], source[middle]) <= 0) {
+            System.arraycopy(source, left, target, left, right - left);
+            return;
+        }
+        int i = left;
+        int j = middle;
+        for (int k = left; k < right; k++) {
+            if (j >= right || (i < middle && comparator.compare(source[i], source[j]) <= 0)) {
+                target[k] = source[i++];
+            }
+            else {
+                target[k] = source[j++];
+            }
+        }
+    }
+
+    private static <E> void merge(E[] source, long[] sourceKeys, E[] target, long[] targetKeys,
+                                  int left, int middle, int right, Comparator<? super E> tieBreak) {
+        if (middle == right || compare(sourceKeys[middle - 1], source[middle - 1], sourceKeys[middle], source[middle], tieBreak) <= 0) {
+            System.arraycopy(source, left, target, left, right - left);
+            System.arraycopy(sourceKeys, left, targetKeys, left, right - left);
+            return;
+        }
+        int i = left;
+        int j = middle;
+        for (int k = left; k < right; k++) {
+            if (j >= right || (i < middle && compare(sourceKeys[i], source[i], sourceKeys[j], source[j], tieBreak) <= 0)) {
+                targetKeys[k] = sourceKeys[i];
+                target[k] = source[i++];
+            }
+            else {
+                targetKeys[k] = sourceKeys[j];
+                target[k] = source[j++];
+            }
+        }
+    }
+
+    private static <E> int compare(long key1, E item1, long key2, E item2, Comparator<? super E> tieBreak) {
+        if (key1 != key2) {
+            return key1 < key2 ? -1 : 1;
+        }
+        if (tieBreak == null) {
+            return 0;
+        }
+        return tieBreak.compare(item1, item2);
+    }
+
+    private static void checkRange(int length, int from, int to) {
+        if (from < 0 || to > length || from > to) {
+            throw new ArrayIndexOutOfBoundsException("Range [" + from + ", " + to + ") of " + length);
+        }
+    }
+}
@@ -0,0 +1,425 @@
+package uk.ac.warwick.cs126.structures;
+
+import java.util.Comparator;
+
+import uk.ac.warwick.cs126.util.HaversineDistanceCalculator;
+
+public class SpatialGrid<E> {
+
+    private static final double R = 6372.8;
+
+    private final double cellSize;
+    private final int columns;
+    private final int rows;
+
+    //the cells that were ever used, by their row and column, and as a list for full scans
+    private final LongHashMap<Cell> cellIndex;
+    private Cell[] cells;
+    private int cellCount;
+    private int size;
+
+    //the items of one cell with their coordinates
+    private static class Cell {
+        Object[] items = new Object[4];
+        float[] latitudes = new float[4];
+        float[] longitudes = new float[4];
+        int size;
+    }
+
+    /**
+     * Constructor method
+     * Grid of 0.1 degree cells, which is about 11 km north to south
+     */
+    public SpatialGrid() {
+        this(0.1f);
+    }
+
+    /**
+     * Constructor method
+     * @param cellSizeDegrees the size of one cell in degrees
+     */
+    public SpatialGrid(float cellSizeDegrees) {
+        cellSize = cellSizeDegrees;
+        columns = (int) Math.ceil(360 / cellSize);
+        rows = (int) Math.ceil(180 / cellSize);
+        cellIndex = new LongHashMap<>();
+        cells = new Cell[16];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private int rowOf(float latitude) {
+        return Math.max(0, Math.min(rows - 1, (int) Math.floor((latitude + 90) / cellSize)));
+    }
+
+    private int columnOf(float longitude) {
+        return Math.floorMod((int) Math.floor((longitude + 180) / cellSize), columns);
+    }
+
+    private static long key(int row, int column) {
+        return ((long) row << 32) | (column & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Adds an item at the given coordinates
+     * @param item the item to be added
+     * @param latitude the latitude of the item
+     * @param longitude the longitude of the item
+     */
+    public void add(E item, float latitude, float longitude) {
+        long key = key(rowOf(latitude), columnOf(longitude));
+        Cell cell = cellIndex.get(key);
+        if (cell == null) {
+            cell = new Cell();
+            cellIndex.put(key, cell);
+            if (cellCount == cells.length) {
+                Cell[] bigger = new Cell[cellCount * 2];
+                System.arraycopy(cells, 0, bigger, 0, cellCount);
+                cells = bigger;
+            }
+            cells[cellCount++] = cell;
+        }
+        if (cell.size == cell.items.length) {
+            int capacity = cell.size * 2;
+            Object[] items = new Object[capacity];
+            float[] latitudes = new float[capacity];
+            float[] longitudes = new float[capacity];
+            System.arraycopy(cell.items, 0, items, 0, cell.size);
+            System.arraycopy(cell.latitudes, 0, latitudes, 0, cell.size);
+            System.arraycopy(cell.longitudes, 0, longitudes, 0, cell.size);
+            cell.items = items;
+            cell.latitudes = latitudes;
+            cell.longitudes = longitudes;
+        }
+        cell.items[cell.size] = item;
+        cell.latitudes[cell.size] = latitude;
+        cell.longitudes[cell.size] = longitude;
+        cell.size++;
+        size++;
+    }
+
+    /**
+     * Removes an item, it has to be given the same coordinates it was added with
+     * @param item the item to be removed
+     * @param latitude the latitude of the item
+     * @param longitude the longitude of the item
+     * @return true when removed, false when it was not in the grid
+     */
+    public boolean remove(E item, float latitude, float longitude) {
+        Cell cell = cellIndex.get(key(rowOf(latitude), columnOf(longitude)));
+        if (cell == null) {
+            return false;
+        }
+        for (int i = 0; i < cell.size; i++) {
+            if (cell.items[i] == item) {
+
+                //the last item of the cell takes its place
+                int last = cell.size - 1;
+                cell.items[i] = cell.items[last];
+                cell.latitudes[i] = cell.latitudes[last];
+                cell.longitudes[i] = cell.longitudes[last];
+                cell.items[last] = null;
+                cell.size--;
+                size--;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Finds the k nearest items to a point
+     * The cells are visited in rings around the point, and the search stops
+     * when no cell further out can be closer than the k-th item found so far
+     * @param latitude the latitude of the point
+     * @param longitude the longitude of the point
+     * @param k the number of items to find
+     * @param tieBreak the order of the items with the same distance
+     * @return the nearest items with their distances, closest first
+     */
+    public Neighbours<E> nearest(float latitude, float longitude, int k, Comparator<? super E> tieBreak) {
+        if (k <= 0 || size == 0) {
+            return new Neighbours<>(new Object[0], new float[0]);
+        }
+        Heap<E> heap = new Heap<>(k, tieBreak);
+        int row = rowOf(latitude);
+        int column = columnOf(longitude);
+        int visited = 0;
+
+        for (int ring = 0; ; ring++) {
+
+            //when the ring has more cells than the grid, every cell is checked once instead
+            long ringCells = 8L * ring;
+            if (2 * ring + 1 >= columns || ringCells > cellCount) {
+                heap.clear();
+                for (int i = 0; i < cellCount; i++) {
+                    offerCell(cells[i], latitude, longitude, heap);
+                }
+                break;
+            }
+
+            if (ring == 0) {
+                visited += offerCell(cellIndex.get(key(row, column)), latitude, longitude, heap);
+            }
+            else {
+                for (int d = -ring; d <= ring; d++) {
+                    visited += offerCell(cellAt(row - ring, column + d), latitude, longitude, heap);
+                    visited += offerCell(cellAt(row + ring, column + d), latitude, longitude, heap);
+                }
+                for (int d = -ring + 1; d <= ring - 1; d++) {
+                    visited += offerCell(cellAt(row + d, column - ring), latitude, longitude, heap);
+                    visited += offerCell(cellAt(row + d, column + ring), latitude, longitude, heap);
+                }
+            }
+
+            if (visited == size) {
+                break;
+            }
+            if (heap.size() == k && minimumDistance(latitude, ring) > heap.maxDistance() + 0.05) {
+                break;
+            }
+        }
+
+        return heap.drain();
+    }
+
+    /**
+     * Finds every item within a radius of a point
+     * Only the cells that can be closer than the radius are checked
+     * @param latitude the latitude of the point
+     * @param longitude the longitude of the point
+     * @param radiusKm the radius in kilometres
+     * @param tieBreak the order of the items with the same distance
+     * @return the items within the radius with their distances, closest first
+     */
+    public Neighbours<E> within(float latitude, float longitude, float radiusKm, Comparator<? super E> tieBreak) {
+        Heap<E> heap = new Heap<>(Integer.MAX_VALUE, tieBreak);
+        heap.limitDistance(radiusKm);
+
+        //the rows that can be closer than the radius
+        double radiusRadians = radiusKm / R;
+        int rowSpan = (int) Math.ceil(Math.toDegrees(radiusRadians) / cellSize) + 1;
+
+        //the columns that can be closer than the radius, using the smallest cosine of the rows
+        double bandLatitude = Math.toRadians(Math.abs(latitude) + (rowSpan + 1) * cellSize);
+        int columnSpan = columns;
+        if (bandLatitude < Math.PI / 2) {
+            double cosines = Math.cos(Math.toRadians(latitude)) * Math.cos(bandLatitude);
+            double haversine = Math.pow(Math.sin(radiusRadians / 2), 2) / cosines;
+            if (haversine < 1) {
+                double longitudeSpan = Math.toDegrees(2 * Math.asin(Math.sqrt(haversine)));
+                columnSpan = (int) Math.ceil(longitudeSpan / cellSize) + 1;
+            }
+        }
+
+        long boxCells = (2L * rowSpan + 1) * Math.min(2L * columnSpan + 1, columns);
+        if (2 * columnSpan + 1 >= columns || boxCells > cellCount) {
+            for (int i = 0; i < cellCount; i++) {
+                offerCell(cells[i], latitude, longitude, heap);
+            }
+        }
+        else {
+            int row = rowOf(latitude);
+            int column = columnOf(longitude);
+            for (int r = row - rowSpan; r <= row + rowSpan; r++) {
+                for (int c = column - columnSpan; c <= column + columnSpan; c++) {
+                    offerCell(cellAt(r, c), latitude, longitude, heap);
+                }
+            }
+        }
+
+        return heap.drain();
+    }
+
+    //the cell at a row and column, the columns wrap around the date line
+    private Cell cellAt(int row, int column) {
+        if (row < 0 || row >= rows) {
+            return null;
+        }
+        return cellIndex.get(key(row, Math.floorMod(column, columns)));
+    }
+
+    //offers every item of a cell to the heap, returns the number of items
+    @SuppressWarnings("unchecked")
+    private int offerCell(Cell cell, float latitude, float longitude, Heap<E> heap) {
+        if (cell == null) {
+            return 0;
+        }
+        float[] distances = heap.scratch(cell.size);
+        HaversineDistanceCalculator.inKilometres(latitude, longitude, cell.latitudes, cell.longitudes, cell.size, distances);
+        for (int i = 0; i < cell.size; i++) {
+            heap.offer((E) cell.items[i], distances[i]);
+        }
+        return cell.size;
+    }
+
+    //the smallest distance of any point in the cells outside the given ring
+    private double minimumDistance(float latitude, int ring) {
+
+        //a cell outside the ring is at least ring cells away north, south, east or west
+        double angle = Math.toRadians(ring * cellSize);
+        double byLatitude = R * angle;
+
+        double bandLatitude = Math.toRadians(Math.abs(latitude) + (ring + 2) * cellSize);
+        if (bandLatitude >= Math.PI / 2 || angle >= Math.PI) {
+            return 0;
+        }
+        double cosines = Math.cos(Math.toRadians(latitude)) * Math.cos(bandLatitude);
+        double byLongitude = 2 * R * Math.asin(Math.sqrt(cosines) * Math.sin(angle / 2));
+        return Math.min(byLatitude, byLongitude);
+    }
+
+    /**
+     * Max-heap of the closest items found so far
+     * The root is the furthest item, so it is the one that is replaced
+     */
+    private static class Heap<E> {
+
+        private final int limit;
+        private final Comparator<? super E> tieBreak;
+        private Object[] items;
+        private float[] distances;
+        private int size;
+        private float maxAllowed = Float.POSITIVE_INFINITY;
+
+        Heap(int limit, Comparator<? super E> tieBreak) {
+            this.limit = limit;
+            this.tieBreak = tieBreak;
+            int capacity = Math.min(limit, 16);
+            items = new Object[capacity];
+            distances = new float[capacity];
+        }
+
+        //reused array for the distances of one cell
+        private float[] scratch = new float[16];
+
+        float[] scratch(int length) {
+            if (scratch.length < length) {
+                scratch = new float[Math.max(length, scratch.length * 2)];
+            }
+            return scratch;
+        }
+
+        void limitDistance(float distance) {
+            maxAllowed = distance;
+        }
+
+        int size() {
+            return size;
+        }
+
+        float maxDistance() {
+            return distances[0];
+        }
+
+        void clear() {
+            for (int i = 0; i < size; i++) {
+                items[i] = null;
+            }
+            size = 0;
+        }
+
+        //true when the first item comes after the second one
+        @SuppressWarnings("unchecked")
+        private boolean after(Object item1, float distance1, Object item2, float distance2) {
+            if (distance1 != distance2) {
+                return distance1 > distance2;
+            }
+            return tieBreak.compare((E) item1, (E) item2) > 0;
+        }
+
+        void offer(E item, float distance) {
+            if (distance > maxAllowed) {
+                return;
+            }
+            if (size < limit) {
+                if (size == items.length) {
+                    int capacity = (int) Math.min((long) limit, size * 2L);
+                    Object[] biggerItems = new Object[capacity];
+                    float[] biggerDistances = new float[capacity];
+                    System.arraycopy(items, 0, biggerItems, 0, size);
+                    System.arraycopy(distances, 0, biggerDistances, 0, size);
+                    items = biggerItems;
+                    distances = biggerDistances;
+                }
+                int i = size++;
+                while (i > 0) {
+                    int parent = (i - 1) / 2;
+                    if (!after(item, distance, items[parent], distances[parent])) {
+                        break;
+                    }
+                    items[i] = items[parent];
+                    distances[i] = distances[parent];
+                    i = parent;
+                }
+                items[i] = item;
+                distances[i] = distance;
+            }
+            else if (after(items[0], distances[0], item, distance)) {
+                siftDown(0, item, distance, size);
+            }
+        }
+
+        private void siftDown(int i, Object item, float distance, int end) {
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= end) {
+                    break;
+                }
+                if (child + 1 < end && after(items[child + 1], distances[child + 1], items[child], distances[child])) {
+                    child++;
+                }
+                if (!after(items[child], distances[child], item, distance)) {
+                    break;
+                }
+                items[i] = items[child];
+                distances[i] = distances[child];
+                i = child;
+            }
+            items[i] = item;
+            distances[i] = distance;
+        }
+
+        //empties the heap, closest first
+        Neighbours<E> drain() {
+            Object[] outItems = new Object[size];
+            float[] outDistances = new float[size];
+            for (int end = size - 1; end >= 0; end--) {
+                outItems[end] = items[0];
+                outDistances[end] = distances[0];
+                siftDown(0, items[end], distances[end], end);
+            }
+            clear();
+            return new Neighbours<>(outItems, outDistances);
+        }
+    }
+
+    /**
+     * The result of a search, the items in order with their distances
+     */
+    public static class Neighbours<E> {
+
+        private final Object[] items;
+        private final float[] distances;
+
+        Neighbours(Object[] items, float[] distances) {
+            this.items = items;
+            this.distances = distances;
+        }
+
+        public int size() {
+            return items.length;
+        }
+
+        @SuppressWarnings("unchecked")
+        public E get(int index) {
+            return (E) items[index];
+        }
+
+        public float getDistance(int index) {
+            return distances[index];
+        }
+    }
+}
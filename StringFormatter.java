@@ -1,9 +1,11 @@
 package uk.ac.warwick.cs126.util;
-import uk.ac.warwick.cs126.structures.HashMap;
+
+import java.io.IOException;
 
 public class StringFormatter {
 
-    private static HashMap<String,String> hash = new HashMap<>();
+    //the converted accent of every char up to the largest accent, null when it stays the same
+    private static final String[] convertedAccentOf;
 
     //Two dimension array of all of the accents
     private static final String[][] accentAndConvertedAccent = {
@@ -1493,13 +1495,33 @@ public class StringFormatter {
     };
 
     static {
-        
-        //Makes a HashMap where accents are the keys and the converted accents are the values
+
+        //Makes a table indexed by the char where the accents have their converted accents
+        char largest = 0;
         for (int i = 0; i < accentAndConvertedAccent.length; i++) {
-            hash.add(accentAndConvertedAccent[i][0],accentAndConvertedAccent[i][1]);
+            char accent = accentAndConvertedAccent[i][0].charAt(0);
+            if (accent > largest) {
+                largest = accent;
+            }
+        }
+        convertedAccentOf = new String[largest + 1];
+        for (int i = 0; i < accentAndConvertedAccent.length; i++) {
+            convertedAccentOf[accentAndConvertedAccent[i][0].charAt(0)] = accentAndConvertedAccent[i][1];
         }
     }
 
+    /**
+     * The converted accent of one char
+     * @param c the char
+     * @return the converted accent, or null when the char is not an accent
+     */
+    static String convertedAccent(char c) {
+        if (c < convertedAccentOf.length) {
+            return convertedAccentOf[c];
+        }
+        return null;
+    }
+
     /** 
     * converts the input string to a non-accent string
     * @param str accent that needs to be converted
@@ -1512,34 +1534,67 @@ public class StringFormatter {
             return "";
         }
 
-        
-        String string = str;
-        char x;
-        String result="";
-        for(int i=0;i<string.length();i++){
-            x=string.charAt(i);
-            String s=String.valueOf(x); 
-            if(hash.find(s)==0){
-                result=result+s;
+        //ascii text has no accents, so it is returned as it is
+        int length = str.length();
+        int i = 0;
+        while (i < length && str.charAt(i) < 0x80) {
+            i++;
+        }
+        if (i == length) {
+            return str;
+        }
+
+        //the ascii start is copied at once, the rest goes char by char
+        StringBuilder result = new StringBuilder(length + 16);
+        result.append(str, 0, i);
+        for (; i < length; i++) {
+            char x = str.charAt(i);
+            String converted = convertedAccent(x);
+            if (converted == null) {
+                result.append(x);
+            }
+            else {
+                result.append(converted);
             }
-            else{
-                result=result+hash.get(s);
-            }          
         }
-        return result;
+        return result.toString();
     }
 
+    /**
+    * converts the input string to a non-accent string
+    * every accent is one char and no converted accent contains an accent,
+    * so converting char by char gives the same result as replacing every accent in turn
+    * @param str accent that needs to be converted
+    * @return result or "" when input is null
+    */
     public static String convertAccents(String str) {
-        if (str == null || str.equals("")){
-            return "";
-        }
+        return convertAccentsFaster(str);
+    }
 
-        String replacedString = str;
-        for (int i = 0; i < accentAndConvertedAccent.length; i++) {
-            replacedString = replacedString.replace(accentAndConvertedAccent[i][0],
-                                                    accentAndConvertedAccent[i][1]);
-        }
+    /**
+    * converts the characters to non-accent characters while appending them,
+    * so long text is converted without making a new String first
+    * @param text characters that need to be converted
+    * @param out where the converted characters are appended, for example a StringBuilder or a Writer
+    * @throws IOException when the output can not be written
+    */
+    public static void convertAccents(CharSequence text, Appendable out) throws IOException {
+        int length = text.length();
+        int runStart = 0;
+        for (int i = 0; i < length; i++) {
+            String converted = convertedAccent(text.charAt(i));
+            if (converted != null) {
 
-        return replacedString;
+                //the chars before the accent are appended at once
+                if (runStart < i) {
+                    out.append(text, runStart, i);
+                }
+                out.append(converted);
+                runStart = i + 1;
+            }
+        }
+        if (runStart < length) {
+            out.append(text, runStart, length);
+        }
     }
 }
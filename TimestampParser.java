@@ -0,0 +1,235 @@
+package uk.ac.warwick.cs126.util;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.TimeZone;
+
+public class TimestampParser {
+
+    //the format every data file uses
+    public static final String PATTERN = "yyyy-MM-dd hh:mm:ss";
+
+    private static final long MILLIS_PER_DAY = 86400000L;
+    private static final int CACHE_SIZE = 8192;
+    private static final int NOT_CONSTANT = Integer.MIN_VALUE;
+
+    private final TimeZone timeZone;
+    private final GregorianCalendar calendar;
+    private SimpleDateFormat formatter;
+
+    //direct-mapped cache of the zone offset of each local day
+    //NOT_CONSTANT marks the days with a daylight saving change
+    private final long[] cachedDays;
+    private final int[] cachedOffsets;
+
+    //the fields of the last parsed timestamp
+    private int year;
+    private int month;
+    private int day;
+    private int hour;
+    private int minute;
+    private int second;
+
+    /**
+     * Constructor method
+     * Parses "yyyy-MM-dd hh:mm:ss" timestamps to the same Dates as SimpleDateFormat,
+     * using the default time zone like SimpleDateFormat does
+     * One parser must not be shared between threads
+     */
+    public TimestampParser() {
+        this(TimeZone.getDefault());
+    }
+
+    /**
+     * Constructor method
+     * @param timeZone the time zone of the timestamps
+     */
+    public TimestampParser(TimeZone timeZone) {
+        this.timeZone = timeZone;
+        calendar = new GregorianCalendar(timeZone);
+        cachedDays = new long[CACHE_SIZE];
+        cachedOffsets = new int[CACHE_SIZE];
+        for (int i = 0; i < CACHE_SIZE; i++) {
+            cachedDays[i] = Long.MIN_VALUE;
+        }
+    }
+
+    /**
+     * Parses a timestamp from bytes
+     * @param bytes the buffer
+     * @param start index of the first byte of the timestamp
+     * @param end index after the last byte of the timestamp
+     * @return the Date of the timestamp
+     * @throws ParseException when it is not a timestamp
+     */
+    public Date parse(byte[] bytes, int start, int end) throws ParseException {
+        return new Date(parseMillis(bytes, start, end));
+    }
+
+    /**
+     * Parses a timestamp from characters
+     * @param text the timestamp
+     * @return the Date of the timestamp
+     * @throws ParseException when it is not a timestamp
+     */
+    public Date parse(CharSequence text) throws ParseException {
+        return new Date(parseMillis(text));
+    }
+
+    /**
+     * Parses a timestamp from bytes to milliseconds since the epoch
+     * @param bytes the buffer
+     * @param start index of the first byte of the timestamp
+     * @param end index after the last byte of the timestamp
+     * @return the milliseconds since the epoch
+     * @throws ParseException when it is not a timestamp
+     */
+    public long parseMillis(byte[] bytes, int start, int end) throws ParseException {
+        //the six numbers with the separators in between
+        int i = start;
+        long value;
+        int digits;
+
+        for (int field = 0; field < 6; field++) {
+            value = 0;
+            digits = 0;
+            while (i < end && bytes[i] >= '0' && bytes[i] <= '9' && digits < 5) {
+                value = value * 10 + (bytes[i] - '0');
+                digits++;
+                i++;
+            }
+            if (digits == 0 || (field < 5 && (i == end || bytes[i] != separator(field)))) {
+                return fallback(FieldParser.parseString(bytes, start, end));
+            }
+            setField(field, (int) value);
+            i++;
+        }
+        if (i - 1 != end || !isPlain()) {
+            return fallback(FieldParser.parseString(bytes, start, end));
+        }
+        return toMillis();
+    }
+
+    /**
+     * Parses a timestamp from characters to milliseconds since the epoch
+     * @param text the timestamp
+     * @return the milliseconds since the epoch
+     * @throws ParseException when it is not a timestamp
+     */
+    public long parseMillis(CharSequence text) throws ParseException {
+        int i = 0;
+        int end = text.length();
+        long value;
+        int digits;
+
+        for (int field = 0; field < 6; field++) {
+            value = 0;
+            digits = 0;
+            while (i < end && text.charAt(i) >= '0' && text.charAt(i) <= '9' && digits < 5) {
+                value = value * 10 + (text.charAt(i) - '0');
+                digits++;
+                i++;
+            }
+            if (digits == 0 || (field < 5 && (i == end || text.charAt(i) != separator(field)))) {
+                return fallback(text.toString());
+            }
+            setField(field, (int) value);
+            i++;
+        }
+        if (i - 1 != end || !isPlain()) {
+            return fallback(text.toString());
+        }
+        return toMillis();
+    }
+
+    //the character after each field
+    private static char separator(int field) {
+        if (field < 2) {
+            return '-';
+        }
+        if (field == 2) {
+            return ' ';
+        }
+        return ':';
+    }
+
+    private void setField(int field, int value) {
+        switch (field) {
+            case 0: year = value; break;
+            case 1: month = value; break;
+            case 2: day = value; break;
+            case 3: hour = value; break;
+            case 4: minute = value; break;
+            default: second = value; break;
+        }
+    }
+
+    //the old calendar systems and the lenient month overflow are left to SimpleDateFormat
+    private boolean isPlain() {
+        return year >= 1600 && month >= 1 && month <= 12;
+    }
+
+    //turns the parsed fields into milliseconds
+    private long toMillis() {
+
+        //hh is the hour of the morning, 12 means midnight, larger values roll over like a lenient calendar
+        int hourOfDay = hour == 12 ? 0 : hour;
+
+        //the days and the time of day are linear, so a too large day or hour just rolls over
+        long localDay = daysFromCivil(year, month) + day - 1;
+        long localMillis = localDay * MILLIS_PER_DAY + hourOfDay * 3600000L + minute * 60000L + second * 1000L;
+
+        long dayOfTime = Math.floorDiv(localMillis, MILLIS_PER_DAY);
+        int offset = offsetOfDay(dayOfTime);
+        if (offset != NOT_CONSTANT) {
+            return localMillis - offset;
+        }
+
+        //on a daylight saving change the calendar decides
+        calendar.clear();
+        calendar.set(year, month - 1, day, hourOfDay, minute, second);
+        return calendar.getTimeInMillis();
+    }
+
+    //the zone offset of a local day, or NOT_CONSTANT when it changes during the day
+    private int offsetOfDay(long localDay) {
+        int slot = (int) (localDay & (CACHE_SIZE - 1));
+        if (cachedDays[slot] != localDay) {
+            long dayStart = localDay * MILLIS_PER_DAY;
+            long startOffset = dayStart - resolve(localDay);
+            long endOffset = dayStart + MILLIS_PER_DAY - resolve(localDay + 1);
+            cachedDays[slot] = localDay;
+            cachedOffsets[slot] = startOffset == endOffset ? (int) startOffset : NOT_CONSTANT;
+        }
+        return cachedOffsets[slot];
+    }
+
+    //the epoch milliseconds of the local midnight that starts the day
+    private long resolve(long localDay) {
+        calendar.clear();
+        calendar.set(1970, Calendar.JANUARY, 1 + (int) localDay, 0, 0, 0);
+        return calendar.getTimeInMillis();
+    }
+
+    //days between 1970-01-01 and the first day of the month, in the proleptic Gregorian calendar
+    private static long daysFromCivil(long year, int month) {
+        long y = month <= 2 ? year - 1 : year;
+        long era = Math.floorDiv(y, 400);
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    //anything unusual is parsed by SimpleDateFormat itself, so the result is always the same
+    private long fallback(String text) throws ParseException {
+        if (formatter == null) {
+            formatter = new SimpleDateFormat(PATTERN);
+            formatter.setTimeZone(timeZone);
+        }
+        return formatter.parse(text).getTime();
+    }
+}
@@ -0,0 +1,166 @@
+package uk.ac.warwick.cs126.util;
+
+import java.util.Comparator;
+
+public class TopK<E> {
+
+    private final int k;
+    private final boolean descending;
+    private final Comparator<? super E> tieBreak;
+
+    //max-heap of the k best elements seen so far, the worst one is at the root
+    private final Object[] items;
+    private final long[] keys;
+    private int size;
+
+    /**
+     * Constructor method
+     * Keeps the first k elements of an order without sorting all of them
+     * Each offer is O(log k), and only k elements are ever stored
+     * @param k the number of elements to keep
+     * @param order the order of the elements
+     */
+    public TopK(int k, Comparator<? super E> order) {
+        this(k, false, order);
+    }
+
+    /**
+     * Constructor method
+     * The elements are ordered by a primitive key first, like Sorter.sortByKey
+     * @param k the number of elements to keep
+     * @param descending true to keep the largest keys
+     * @param tieBreak the order of the elements with equal keys, null only when the keys are unique
+     */
+    public TopK(int k, boolean descending, Comparator<? super E> tieBreak) {
+        if (k < 0) {
+            throw new IllegalArgumentException("Negative k " + k);
+        }
+        this.k = k;
+        this.descending = descending;
+        this.tieBreak = tieBreak;
+        items = new Object[k];
+        keys = new long[k];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Offers an element that is only ordered by the comparator
+     * @param item the element
+     */
+    public void offer(E item) {
+        offer(item, 0L);
+    }
+
+    /**
+     * Offers an element with a float key
+     * @param item the element
+     * @param key the key, 0.0 and -0.0 are equal
+     */
+    public void offer(E item, float key) {
+        int bits = Float.floatToIntBits(key + 0.0f);
+        offer(item, (long) (bits ^ ((bits >> 31) & 0x7fffffff)));
+    }
+
+    /**
+     * Offers an element with a long key
+     * @param item the element
+     * @param key the key
+     */
+    public void offer(E item, long key) {
+        if (descending) {
+            key = ~key;
+        }
+        if (size < k) {
+            items[size] = item;
+            keys[size] = key;
+            siftUp(size);
+            size++;
+        }
+        else if (k > 0 && compare(key, item, 0) < 0) {
+
+            //better than the worst one kept, that one is dropped
+            items[0] = item;
+            keys[0] = key;
+            siftDown(0, size);
+        }
+    }
+
+    /**
+     * Takes the kept elements in order, the selection is empty afterwards
+     * @param target the array to fill, its length must be size()
+     */
+    @SuppressWarnings("unchecked")
+    public void drainTo(E[] target) {
+        if (target.length != size) {
+            throw new IllegalArgumentException("Target: " + target.length + ", size: " + size);
+        }
+
+        //heap sort, the worst remaining element goes to the back each time
+        for (int last = size - 1; last >= 0; last--) {
+            target[last] = (E) items[0];
+            items[0] = items[last];
+            keys[0] = keys[last];
+            items[last] = null;
+            siftDown(0, last);
+        }
+        size = 0;
+    }
+
+    //compares an outside element with the element at an index of the heap
+    @SuppressWarnings("unchecked")
+    private int compare(long key, E item, int index) {
+        if (key != keys[index]) {
+            return key < keys[index] ? -1 : 1;
+        }
+        if (tieBreak == null) {
+            return 0;
+        }
+        return tieBreak.compare(item, (E) items[index]);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void siftUp(int index) {
+        Object item = items[index];
+        long key = keys[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (compare(key, (E) item, parent) <= 0) {
+                break;
+            }
+            items[index] = items[parent];
+            keys[index] = keys[parent];
+            index = parent;
+        }
+        items[index] = item;
+        keys[index] = key;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void siftDown(int index, int count) {
+        if (count == 0) {
+            return;
+        }
+        Object item = items[index];
+        long key = keys[index];
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= count) {
+                break;
+            }
+            if (child + 1 < count && compare(keys[child + 1], (E) items[child + 1], child) > 0) {
+                child++;
+            }
+            if (compare(key, (E) item, child) >= 0) {
+                break;
+            }
+            items[index] = items[child];
+            keys[index] = keys[child];
+            index = child;
+        }
+        items[index] = item;
+        keys[index] = key;
+    }
+}
@@ -0,0 +1,268 @@
+package uk.ac.warwick.cs126.structures;
+
+import uk.ac.warwick.cs126.util.Sorter;
+
+public class TrigramIndex<E> {
+
+    //rebuilds the posting lists when this many removed items are left in them
+    private static final int MIN_DEAD_FOR_COMPACTION = 64;
+
+    //the items by their ordinal, removed items are null until the next compaction
+    private Object[] items;
+    private long[] ids;
+    private String[] texts;
+    private int ordinalCount;
+    private int deadCount;
+
+    //the ordinal of each id, and the ordinals of the items that contain each trigram
+    private final LongHashMap<Integer> ordinalOfID;
+    private LongHashMap<Postings> postings;
+
+    //the ordinals of one trigram in ascending order
+    private static class Postings {
+        int[] ordinals = new int[4];
+        int size;
+
+        void add(int ordinal) {
+            if (size == ordinals.length) {
+                int[] bigger = new int[size * 2];
+                System.arraycopy(ordinals, 0, bigger, 0, size);
+                ordinals = bigger;
+            }
+            ordinals[size++] = ordinal;
+        }
+    }
+
+    /**
+     * Constructor method
+     * Substring index over normalised texts, every text is split into its
+     * overlapping three character parts
+     */
+    public TrigramIndex() {
+        items = new Object[16];
+        ids = new long[16];
+        texts = new String[16];
+        ordinalOfID = new LongHashMap<>();
+        postings = new LongHashMap<>();
+    }
+
+    public int size() {
+        return ordinalOfID.size();
+    }
+
+    /**
+     * Adds an item, an item with the same id is replaced
+     * @param id the id of the item, the results are ordered by it
+     * @param item the item to be added
+     * @param text the normalised text of the item
+     */
+    public void add(long id, E item, String text) {
+        remove(id);
+        if (ordinalCount == items.length) {
+            int capacity = ordinalCount * 2;
+            Object[] biggerItems = new Object[capacity];
+            long[] biggerIDs = new long[capacity];
+            String[] biggerTexts = new String[capacity];
+            System.arraycopy(items, 0, biggerItems, 0, ordinalCount);
+            System.arraycopy(ids, 0, biggerIDs, 0, ordinalCount);
+            System.arraycopy(texts, 0, biggerTexts, 0, ordinalCount);
+            items = biggerItems;
+            ids = biggerIDs;
+            texts = biggerTexts;
+        }
+        int ordinal = ordinalCount++;
+        items[ordinal] = item;
+        ids[ordinal] = id;
+        texts[ordinal] = text;
+        ordinalOfID.put(id, ordinal);
+        index(ordinal, text);
+    }
+
+    /**
+     * Removes an item
+     * @param id the id of the item
+     * @return true when it was in the index
+     */
+    public boolean remove(long id) {
+        Integer ordinal = ordinalOfID.remove(id);
+        if (ordinal == null) {
+            return false;
+        }
+
+        //the ordinal stays in the posting lists, the search skips it
+        items[ordinal] = null;
+        texts[ordinal] = null;
+        deadCount++;
+        if (deadCount >= MIN_DEAD_FOR_COMPACTION && deadCount > size()) {
+            compact();
+        }
+        return true;
+    }
+
+    //adds the ordinal to the posting list of every different trigram of the text
+    private void index(int ordinal, String text) {
+        for (int i = 0; i + 3 <= text.length(); i++) {
+            long trigram = trigram(text, i);
+            Postings list = postings.get(trigram);
+            if (list == null) {
+                list = new Postings();
+                postings.put(trigram, list);
+            }
+
+            //a trigram that is repeated in the text is only added once
+            if (list.size == 0 || list.ordinals[list.size - 1] != ordinal) {
+                list.add(ordinal);
+            }
+        }
+    }
+
+    //the three characters from the index packed in a long
+    private static long trigram(CharSequence text, int index) {
+        return ((long) text.charAt(index) << 32) | ((long) text.charAt(index + 1) << 16) | text.charAt(index + 2);
+    }
+
+    //gives the items new ordinals without the removed ones and indexes them again
+    private void compact() {
+        int live = 0;
+        postings = new LongHashMap<>();
+        for (int ordinal = 0; ordinal < ordinalCount; ordinal++) {
+            if (texts[ordinal] != null) {
+                items[live] = items[ordinal];
+                ids[live] = ids[ordinal];
+                texts[live] = texts[ordinal];
+                ordinalOfID.put(ids[live], live);
+                index(live, texts[live]);
+                live++;
+            }
+        }
+        for (int ordinal = live; ordinal < ordinalCount; ordinal++) {
+            items[ordinal] = null;
+            texts[ordinal] = null;
+        }
+        ordinalCount = live;
+        deadCount = 0;
+    }
+
+    /**
+     * Finds the items whose text contains every term
+     * The terms must be normalised the same way as the texts
+     * @param terms the terms to look for, an empty term is in every text
+     * @return the matching items ordered by their ids
+     */
+    public Matches<E> search(String[] terms) {
+
+        //the posting lists of the trigrams of the terms
+        //short terms have no trigrams and are only checked in the verification
+        int trigramCount = 0;
+        for (int t = 0; t < terms.length; t++) {
+            trigramCount += Math.max(0, terms[t].length() - 2);
+        }
+        Postings[] lists = new Postings[trigramCount];
+        int listCount = 0;
+        for (int t = 0; t < terms.length; t++) {
+            String term = terms[t];
+            for (int i = 0; i + 3 <= term.length(); i++) {
+                Postings list = postings.get(trigram(term, i));
+                if (list == null) {
+                    return new Matches<>(new Object[0]);
+                }
+                lists[listCount++] = list;
+            }
+        }
+
+        //intersects them starting from the shortest list
+        int[] candidates = null;
+        int candidateCount = 0;
+        for (int done = 0; done < listCount; done++) {
+            int shortest = done;
+            for (int i = done + 1; i < listCount; i++) {
+                if (lists[i].size < lists[shortest].size) {
+                    shortest = i;
+                }
+            }
+            Postings list = lists[shortest];
+            lists[shortest] = lists[done];
+            lists[done] = list;
+
+            if (candidates == null) {
+                candidates = new int[list.size];
+                System.arraycopy(list.ordinals, 0, candidates, 0, list.size);
+                candidateCount = list.size;
+            }
+            else {
+                candidateCount = intersect(candidates, candidateCount, list);
+            }
+            if (candidateCount == 0) {
+                return new Matches<>(new Object[0]);
+            }
+        }
+
+        //the trigrams only narrow the search down, the terms are checked in the texts
+        Object[] matchItems = new Object[candidates == null ? size() : candidateCount];
+        long[] matchIDs = new long[matchItems.length];
+        int matchCount = 0;
+        int end = candidates == null ? ordinalCount : candidateCount;
+        for (int c = 0; c < end; c++) {
+            int ordinal = candidates == null ? c : candidates[c];
+            String text = texts[ordinal];
+            if (text != null && containsAll(text, terms)) {
+                matchItems[matchCount] = items[ordinal];
+                matchIDs[matchCount] = ids[ordinal];
+                matchCount++;
+            }
+        }
+
+        //the matches in ascending order of their ids
+        Object[] result = new Object[matchCount];
+        long[] resultIDs = new long[matchCount];
+        System.arraycopy(matchItems, 0, result, 0, matchCount);
+        System.arraycopy(matchIDs, 0, resultIDs, 0, matchCount);
+        Sorter.sortByKey(result, resultIDs, false, null);
+        return new Matches<>(result);
+    }
+
+    //keeps the candidates that are also in the list, both are in ascending order
+    private static int intersect(int[] candidates, int candidateCount, Postings list) {
+        int kept = 0;
+        int j = 0;
+        for (int i = 0; i < candidateCount && j < list.size; i++) {
+            while (j < list.size && list.ordinals[j] < candidates[i]) {
+                j++;
+            }
+            if (j < list.size && list.ordinals[j] == candidates[i]) {
+                candidates[kept++] = candidates[i];
+            }
+        }
+        return kept;
+    }
+
+    private static boolean containsAll(String text, String[] terms) {
+        for (int t = 0; t < terms.length; t++) {
+            if (!text.contains(terms[t])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The result of a search, the items in order
+     */
+    public static class Matches<E> {
+
+        private final Object[] items;
+
+        Matches(Object[] items) {
+            this.items = items;
+        }
+
+        public int size() {
+            return items.length;
+        }
+
+        @SuppressWarnings("unchecked")
+        public E get(int index) {
+            return (E) items[index];
+        }
+    }
+}